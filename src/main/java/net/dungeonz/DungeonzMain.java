@@ -1,6 +1,5 @@
 package net.dungeonz;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
@@ -29,7 +28,8 @@ public class DungeonzMain implements ModInitializer {
     public static final boolean isPartyAddonLoaded = FabricLoader.getInstance().isModLoaded("partyaddon");
     public static final boolean isRpgDifficultyLoaded = FabricLoader.getInstance().isModLoaded("rpgdifficulty");
 
-    public static final List<Dungeon> DUNGEONS = new ArrayList<Dungeon>();
+    // Immutable snapshot, swapped as a whole on reload
+    public static volatile List<Dungeon> DUNGEONS = List.of();
 
     @Override
     public void onInitialize() {
@@ -1,14 +1,14 @@
 package net.dungeonz.access;
 
-import java.util.List;
+import java.util.BitSet;
 
 public interface ClientPlayerAccess {
 
-    public void setClientDungeonInfo(List<Integer> breakableBlockIdList, List<Integer> placeableBlockIdList, boolean allowElytra);
+    public void setClientDungeonInfo(BitSet breakableBlocks, BitSet placeableBlocks, boolean allowElytra);
 
-    public List<Integer> getBreakableBlockIdList();
+    public BitSet getBreakableBlocks();
 
-    public List<Integer> getPlaceableBlockIdList();
+    public BitSet getPlaceableBlocks();
 
     public boolean isElytraAllowed();
 }
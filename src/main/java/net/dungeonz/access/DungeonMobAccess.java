@@ -0,0 +1,8 @@
+package net.dungeonz.access;
+
+public interface DungeonMobAccess {
+
+    public void setDungeonRoomKey(long roomKey);
+
+    public long getDungeonRoomKey();
+}
@@ -2,12 +2,13 @@ package net.dungeonz.access;
 
 import org.jetbrains.annotations.Nullable;
 
+import net.dungeonz.dungeon.DungeonSession;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
 
 public interface ServerPlayerAccess {
 
-    public void setDungeonInfo(ServerWorld world, BlockPos portalPos, BlockPos playerPos);
+    public void setDungeonInfo(ServerWorld world, BlockPos portalPos, BlockPos playerPos, int instanceIndex);
 
     @Nullable
     public ServerWorld getOldServerWorld();
@@ -15,4 +16,11 @@ public interface ServerPlayerAccess {
     public BlockPos getDungeonPortalBlockPos();
 
     public BlockPos getDungeonSpawnBlockPos();
+
+    public int getDungeonInstanceIndex();
+
+    public void setDungeonSession(@Nullable DungeonSession dungeonSession);
+
+    @Nullable
+    public DungeonSession getDungeonSession();
 }
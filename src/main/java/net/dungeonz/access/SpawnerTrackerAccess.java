@@ -0,0 +1,8 @@
+package net.dungeonz.access;
+
+import net.dungeonz.dungeon.DungeonSpawnerTracker;
+
+public interface SpawnerTrackerAccess {
+
+    public DungeonSpawnerTracker getDungeonSpawnerTracker();
+}
@@ -3,7 +3,6 @@ package net.dungeonz.block;
 import org.jetbrains.annotations.Nullable;
 
 import net.dungeonz.block.entity.DungeonGateEntity;
-import net.dungeonz.init.BlockInit;
 import net.dungeonz.init.ConfigInit;
 import net.dungeonz.network.DungeonServerPacket;
 import net.minecraft.block.Block;
@@ -12,12 +11,12 @@ import net.minecraft.block.BlockState;
 import net.minecraft.block.BlockWithEntity;
 import net.minecraft.block.ShapeContext;
 import net.minecraft.block.entity.BlockEntity;
-import net.minecraft.block.entity.BlockEntityTicker;
-import net.minecraft.block.entity.BlockEntityType;
 import net.minecraft.client.util.ParticleUtil;
+import net.minecraft.entity.LivingEntity;
 import net.minecraft.entity.ai.pathing.NavigationType;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.item.BlockItem;
+import net.minecraft.item.ItemStack;
 import net.minecraft.registry.Registries;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.state.StateManager;
@@ -50,9 +49,19 @@ public class DungeonGateBlock extends BlockWithEntity {
     }
 
     @Override
-    @Nullable
-    public <T extends BlockEntity> BlockEntityTicker<T> getTicker(World world, BlockState state, BlockEntityType<T> type) {
-        return DungeonGateBlock.checkType(type, BlockInit.DUNGEON_GATE_ENTITY, world.isClient ? null : DungeonGateEntity::serverTick);
+    public void onPlaced(World world, BlockPos pos, BlockState state, @Nullable LivingEntity placer, ItemStack itemStack) {
+        super.onPlaced(world, pos, state, placer, itemStack);
+        if (!world.isClient()) {
+            DungeonGateEntity.updateGroup(world, pos);
+        }
+    }
+
+    @Override
+    public void onStateReplaced(BlockState state, World world, BlockPos pos, BlockState newState, boolean moved) {
+        super.onStateReplaced(state, world, pos, newState, moved);
+        if (!world.isClient() && !state.isOf(newState.getBlock())) {
+            DungeonGateEntity.updateNeighborGroups(world, pos);
+        }
     }
 
     @Override
@@ -85,7 +94,7 @@ public class DungeonGateBlock extends BlockWithEntity {
 
     @Override
     public BlockRenderType getRenderType(BlockState state) {
-        return BlockRenderType.INVISIBLE;
+        return BlockRenderType.MODEL;
     }
 
     @Override
@@ -95,9 +104,8 @@ public class DungeonGateBlock extends BlockWithEntity {
 
     @Override
     public void randomDisplayTick(BlockState state, World world, BlockPos pos, Random random) {
-        if (state.get(ENABLED) && world.getBlockEntity(pos) != null && world.getBlockEntity(pos) instanceof DungeonGateEntity
-                && ((DungeonGateEntity) world.getBlockEntity(pos)).getParticleEffect() != null) {
-            ParticleUtil.spawnParticle(world, pos, ((DungeonGateEntity) world.getBlockEntity(pos)).getParticleEffect(), UniformIntProvider.create(0, 1));
+        if (state.get(ENABLED) && world.getBlockEntity(pos) instanceof DungeonGateEntity dungeonGateEntity && dungeonGateEntity.getParticleEffect() != null) {
+            ParticleUtil.spawnParticle(world, pos, dungeonGateEntity.getParticleEffect(), UniformIntProvider.create(0, 1));
         }
     }
 
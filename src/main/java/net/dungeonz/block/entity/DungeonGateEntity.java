@@ -1,5 +1,6 @@
 package net.dungeonz.block.entity;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,35 +9,51 @@ import com.mojang.brigadier.exceptions.CommandSyntaxException;
 
 import org.jetbrains.annotations.Nullable;
 
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
 import net.dungeonz.block.DungeonGateBlock;
+import net.dungeonz.dungeon.DungeonEntityTracker;
 import net.dungeonz.init.BlockInit;
 import net.dungeonz.init.ConfigInit;
 import net.dungeonz.init.DimensionInit;
 import net.dungeonz.init.SoundInit;
+import net.dungeonz.util.DungeonNbtHelper;
+import net.fabricmc.fabric.api.rendering.data.v1.RenderAttachmentBlockEntity;
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.command.argument.ParticleEffectArgumentType;
-import net.minecraft.entity.mob.HostileEntity;
 import net.minecraft.item.Item;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.network.packet.s2c.play.BlockEntityUpdateS2CPacket;
 import net.minecraft.particle.ParticleEffect;
-import net.minecraft.predicate.entity.EntityPredicates;
 import net.minecraft.registry.Registries;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
 
-public class DungeonGateEntity extends BlockEntity {
+public class DungeonGateEntity extends BlockEntity implements RenderAttachmentBlockEntity {
 
     private static final List<Direction> directions = List.of(Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST, Direction.UP, Direction.DOWN);
+    private static final int MAX_GROUP_SIZE = 4096;
     private Identifier gateBlockId = new Identifier("minecraft:chiseled_stone_bricks");
     private String unlockItemId = "";
     private String gateParticleId = "minecraft:scrape";
     private List<Integer> dungeonEdgeList = new ArrayList<Integer>();
+    // Resolved once per id change, the renderer and particle display ask every frame
+    @Nullable
+    private BlockState gateBlockState = null;
+    @Nullable
+    private ParticleEffect gateParticleEffect = null;
+    private boolean gateParticleEffectResolved = false;
+    private long subscribedRoomKey = DungeonEntityTracker.NO_ROOM;
+    // Every gate of a group points to the root gate, only the root stores the member positions
+    @Nullable
+    private BlockPos groupRootPos = null;
+    private long[] groupMembers = new long[0];
 
     public DungeonGateEntity(BlockPos pos, BlockState state) {
         super(BlockInit.DUNGEON_GATE_ENTITY, pos, state);
@@ -48,8 +65,12 @@ public class DungeonGateEntity extends BlockEntity {
         this.gateBlockId = new Identifier(nbt.getString("GateBlockId"));
         this.unlockItemId = nbt.getString("UnlockItemId");
         this.gateParticleId = nbt.getString("GateParticleId");
+        this.onDisguiseChanged();
+        this.gateParticleEffectResolved = false;
 
-        if (nbt.getInt("DungeonEdgeSize") > 0) {
+        if (nbt.contains("DungeonEdges")) {
+            this.dungeonEdgeList = DungeonNbtHelper.getIntList(nbt, "DungeonEdges");
+        } else if (nbt.getInt("DungeonEdgeSize") > 0) {
             this.dungeonEdgeList.clear();
             for (int i = 0; i < nbt.getInt("DungeonEdgeSize") / 3; i++) {
                 this.dungeonEdgeList.add(nbt.getInt("DungeonEdgeX" + i));
@@ -57,6 +78,9 @@ public class DungeonGateEntity extends BlockEntity {
                 this.dungeonEdgeList.add(nbt.getInt("DungeonEdgeZ" + i));
             }
         }
+        this.groupRootPos = nbt.contains("GroupRoot") ? BlockPos.fromLong(nbt.getLong("GroupRoot")) : null;
+        this.groupMembers = nbt.getLongArray("GroupMembers");
+        this.updateSubscription();
     }
 
     @Override
@@ -66,43 +90,73 @@ public class DungeonGateEntity extends BlockEntity {
         nbt.putString("UnlockItemId", this.unlockItemId.toString());
         nbt.putString("GateParticleId", this.gateParticleId.toString());
 
-        nbt.putInt("DungeonEdgeSize", this.dungeonEdgeList.size());
-        if (this.dungeonEdgeList.size() > 0) {
-            for (int i = 0; i < this.dungeonEdgeList.size() / 3; i++) {
-                nbt.putInt("DungeonEdgeX" + i, this.dungeonEdgeList.get(i + 3 * i));
-                nbt.putInt("DungeonEdgeY" + i, this.dungeonEdgeList.get(i + 1 + 3 * i));
-                nbt.putInt("DungeonEdgeZ" + i, this.dungeonEdgeList.get(i + 2 + 3 * i));
-            }
+        DungeonNbtHelper.putIntList(nbt, "DungeonEdges", this.dungeonEdgeList);
+        if (this.groupRootPos != null) {
+            nbt.putLong("GroupRoot", this.groupRootPos.asLong());
+        }
+        if (this.groupMembers.length > 0) {
+            nbt.putLongArray("GroupMembers", this.groupMembers);
         }
     }
 
-    public static void serverTick(World world, BlockPos pos, BlockState state, DungeonGateEntity blockEntity) {
-        if (world.getTime() % 20 == 0 && blockEntity.unlockItemId == null && blockEntity.getDungeonEdgeList().size() >= 6 && world.getRegistryKey() == DimensionInit.DUNGEON_WORLD
-                && !ConfigInit.CONFIG.devMode) {
-            if (!world.getBlockState(pos.down()).isOf(BlockInit.DUNGEON_GATE)) {
-                if (world.getBlockState(pos.north()).isOf(BlockInit.DUNGEON_GATE) && !world.getBlockState(pos.south()).isOf(BlockInit.DUNGEON_GATE)) {
-                    if (!blockEntity.areHostileEntitiesAlive()) {
-                        blockEntity.unlockGate(pos);
-                    }
-                } else if (world.getBlockState(pos.east()).isOf(BlockInit.DUNGEON_GATE) && !world.getBlockState(pos.west()).isOf(BlockInit.DUNGEON_GATE)) {
-                    if (blockEntity.areHostileEntitiesAlive()) {
-                        blockEntity.unlockGate(pos);
-                    }
-                }
-            }
+    @Override
+    public void setWorld(World world) {
+        super.setWorld(world);
+        this.updateSubscription();
+    }
+
+    @Override
+    public void markRemoved() {
+        super.markRemoved();
+        this.updateSubscription();
+    }
+
+    @Override
+    public void cancelRemoval() {
+        super.cancelRemoval();
+        this.updateSubscription();
+    }
+
+    // Gates without an unlock item listen to the live hostile count of their room
+    private void updateSubscription() {
+        if (this.subscribedRoomKey != DungeonEntityTracker.NO_ROOM) {
+            DungeonEntityTracker.unsubscribe(this.subscribedRoomKey, this);
+            this.subscribedRoomKey = DungeonEntityTracker.NO_ROOM;
+        }
+        if (this.world != null && !this.world.isClient() && !this.isRemoved() && this.world.getRegistryKey() == DimensionInit.DUNGEON_WORLD && this.getUnlockItem() == null
+                && this.getDungeonEdgeList().size() >= 6) {
+            this.subscribedRoomKey = DungeonEntityTracker.getRoomKey(this.getDungeonEdgeList().get(0), this.getDungeonEdgeList().get(1), this.getDungeonEdgeList().get(2));
+            DungeonEntityTracker.subscribe(this.subscribedRoomKey, this);
         }
     }
 
-    private boolean areHostileEntitiesAlive() {
-        if (this.getDungeonEdgeList().size() < 6) {
-            return false;
+    public long getSubscribedRoomKey() {
+        return this.subscribedRoomKey;
+    }
+
+    // Entities load after block entities, the room state is only known once both room corners tick entities
+    public boolean isRoomLoaded() {
+        List<Integer> edges = this.getDungeonEdgeList();
+        return ((ServerWorld) this.world).shouldTickEntity(new BlockPos(edges.get(0), edges.get(1), edges.get(2)))
+                && ((ServerWorld) this.world).shouldTickEntity(new BlockPos(edges.get(3), edges.get(4), edges.get(5)));
+    }
+
+    // Only the lowest gate at the north or east end of a gate group unlocks it
+    public void onRoomChanged(boolean cleared) {
+        if (ConfigInit.CONFIG.devMode || !this.world.getBlockState(this.pos).isOf(BlockInit.DUNGEON_GATE) || !this.world.getBlockState(this.pos).get(DungeonGateBlock.ENABLED)) {
+            return;
         }
-        List<HostileEntity> hostileEntities = world.getEntitiesByClass(HostileEntity.class, new Box(this.getDungeonEdgeList().get(0), this.getDungeonEdgeList().get(1),
-                this.getDungeonEdgeList().get(2), this.getDungeonEdgeList().get(3), this.getDungeonEdgeList().get(4), this.getDungeonEdgeList().get(5)), EntityPredicates.EXCEPT_SPECTATOR);
-        if (hostileEntities.isEmpty()) {
-            return false;
+        if (!this.world.getBlockState(this.pos.down()).isOf(BlockInit.DUNGEON_GATE)) {
+            if (this.world.getBlockState(this.pos.north()).isOf(BlockInit.DUNGEON_GATE) && !this.world.getBlockState(this.pos.south()).isOf(BlockInit.DUNGEON_GATE)) {
+                if (cleared) {
+                    this.unlockGate(this.pos);
+                }
+            } else if (this.world.getBlockState(this.pos.east()).isOf(BlockInit.DUNGEON_GATE) && !this.world.getBlockState(this.pos.west()).isOf(BlockInit.DUNGEON_GATE)) {
+                if (!cleared) {
+                    this.unlockGate(this.pos);
+                }
+            }
         }
-        return true;
     }
 
     public void unlockGate(BlockPos pos) {
@@ -119,30 +173,74 @@ public class DungeonGateEntity extends BlockEntity {
         }
     }
 
+    // Uses the stored group of the gate and only falls back to a flood fill for gates without one
     public static List<BlockPos> getConnectedDungeonGatePosList(World world, BlockPos pos) {
+        if (world.getBlockEntity(pos) instanceof DungeonGateEntity dungeonGateEntity && dungeonGateEntity.groupRootPos != null
+                && world.getBlockEntity(dungeonGateEntity.groupRootPos) instanceof DungeonGateEntity rootGateEntity && rootGateEntity.groupMembers.length > 0) {
+            List<BlockPos> dungeonGates = new ArrayList<BlockPos>(rootGateEntity.groupMembers.length);
+            for (int i = 0; i < rootGateEntity.groupMembers.length; i++) {
+                dungeonGates.add(BlockPos.fromLong(rootGateEntity.groupMembers[i]));
+            }
+            if (dungeonGates.contains(pos)) {
+                return dungeonGates;
+            }
+        }
+        return updateGroup(world, pos);
+    }
+
+    // Flood fills the connected gates and stores the group on them
+    public static List<BlockPos> updateGroup(World world, BlockPos pos) {
         List<BlockPos> dungeonGates = new ArrayList<BlockPos>();
-        List<Integer> directionLengths = new ArrayList<Integer>();
+        if (!world.getBlockState(pos).isOf(BlockInit.DUNGEON_GATE)) {
+            return dungeonGates;
+        }
+        LongOpenHashSet visited = new LongOpenHashSet();
+        ArrayDeque<BlockPos> queue = new ArrayDeque<BlockPos>();
+        visited.add(pos.asLong());
+        queue.add(pos);
+        while (!queue.isEmpty() && dungeonGates.size() < MAX_GROUP_SIZE) {
+            BlockPos checkPos = queue.poll();
+            dungeonGates.add(checkPos);
+            for (int i = 0; i < DungeonGateEntity.directions.size(); i++) {
+                BlockPos offsetPos = checkPos.offset(DungeonGateEntity.directions.get(i));
+                if (visited.add(offsetPos.asLong()) && world.getBlockState(offsetPos).isOf(BlockInit.DUNGEON_GATE)) {
+                    queue.add(offsetPos);
+                }
+            }
+        }
+        long[] members = new long[dungeonGates.size()];
+        for (int i = 0; i < dungeonGates.size(); i++) {
+            members[i] = dungeonGates.get(i).asLong();
+            if (world.getBlockEntity(dungeonGates.get(i)) instanceof DungeonGateEntity dungeonGateEntity) {
+                dungeonGateEntity.groupRootPos = pos;
+                dungeonGateEntity.groupMembers = i == 0 ? members : new long[0];
+                dungeonGateEntity.markDirty();
+            }
+        }
+        return dungeonGates;
+    }
 
+    // A removed gate may split its group
+    public static void updateNeighborGroups(World world, BlockPos pos) {
+        List<BlockPos> neighborPosList = new ArrayList<BlockPos>();
         for (int i = 0; i < DungeonGateEntity.directions.size(); i++) {
-            for (int u = 1; u < 100; u++) {
-                if (!world.getBlockState(pos.offset(DungeonGateEntity.directions.get(i), u)).isOf(BlockInit.DUNGEON_GATE)) {
-                    directionLengths.add(u - 1);
-                    break;
-                }
+            if (world.getBlockState(pos.offset(DungeonGateEntity.directions.get(i))).isOf(BlockInit.DUNGEON_GATE)) {
+                neighborPosList.add(pos.offset(DungeonGateEntity.directions.get(i)));
             }
         }
-        for (int i = -directionLengths.get(5); i <= directionLengths.get(4); i++) {
-            for (int u = -directionLengths.get(0); u <= directionLengths.get(2); u++) {
-                for (int o = -directionLengths.get(1); o <= directionLengths.get(3); o++) {
-                    BlockPos checkPos = pos.up(i).south(u).west(o);
-                    if (world.getBlockState(checkPos).isOf(BlockInit.DUNGEON_GATE) && !dungeonGates.contains(checkPos)) {
-                        dungeonGates.add(checkPos);
-                    }
+        updateGroups(world, neighborPosList);
+    }
+
+    public static void updateGroups(World world, List<BlockPos> gatePosList) {
+        LongOpenHashSet grouped = new LongOpenHashSet();
+        for (int i = 0; i < gatePosList.size(); i++) {
+            if (!grouped.contains(gatePosList.get(i).asLong())) {
+                List<BlockPos> dungeonGates = updateGroup(world, gatePosList.get(i));
+                for (int u = 0; u < dungeonGates.size(); u++) {
+                    grouped.add(dungeonGates.get(u).asLong());
                 }
             }
         }
-
-        return dungeonGates;
     }
 
     @Override
@@ -157,6 +255,7 @@ public class DungeonGateEntity extends BlockEntity {
 
     public void setUnlockItemId(String unlockItemId) {
         this.unlockItemId = unlockItemId;
+        this.updateSubscription();
     }
 
     @Nullable
@@ -169,32 +268,54 @@ public class DungeonGateEntity extends BlockEntity {
 
     public void setBlockId(Identifier gateBlockId) {
         this.gateBlockId = gateBlockId;
+        this.onDisguiseChanged();
+    }
+
+    // The disguise is part of the chunk mesh on the client, so the section has to be rebuilt
+    private void onDisguiseChanged() {
+        this.gateBlockState = null;
+        if (this.world != null && this.world.isClient()) {
+            this.world.updateListeners(this.pos, this.getCachedState(), this.getCachedState(), Block.NOTIFY_ALL);
+        }
+    }
+
+    @Override
+    public Object getRenderAttachmentData() {
+        return this.getBlockState();
     }
 
     public BlockState getBlockState() {
-        return Registries.BLOCK.get(this.gateBlockId).getDefaultState();
+        if (this.gateBlockState == null) {
+            this.gateBlockState = Registries.BLOCK.get(this.gateBlockId).getDefaultState();
+        }
+        return this.gateBlockState;
     }
 
     public void setParticleEffectId(String gateParticleId) {
         this.gateParticleId = gateParticleId;
+        this.gateParticleEffectResolved = false;
     }
 
     @Nullable
     public ParticleEffect getParticleEffect() {
-        if (this.gateParticleId.equals("")) {
-            return null;
-        }
-        try {
-            return ParticleEffectArgumentType.readParameters(new StringReader(this.gateParticleId.toString()), Registries.PARTICLE_TYPE.getReadOnlyWrapper());
-        } catch (CommandSyntaxException commandSyntaxException) {
+        if (!this.gateParticleEffectResolved) {
+            this.gateParticleEffect = null;
+            if (!this.gateParticleId.equals("")) {
+                try {
+                    this.gateParticleEffect = ParticleEffectArgumentType.readParameters(new StringReader(this.gateParticleId.toString()), Registries.PARTICLE_TYPE.getReadOnlyWrapper());
+                } catch (CommandSyntaxException commandSyntaxException) {
+                }
+            }
+            this.gateParticleEffectResolved = true;
         }
-        return null;
+        return this.gateParticleEffect;
     }
 
     public void addDungeonEdge(int edgeX, int edgeY, int edgeZ) {
         this.dungeonEdgeList.add(edgeX);
         this.dungeonEdgeList.add(edgeY);
         this.dungeonEdgeList.add(edgeZ);
+        this.updateSubscription();
     }
 
     public List<Integer> getDungeonEdgeList() {
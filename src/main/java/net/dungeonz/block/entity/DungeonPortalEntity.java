@@ -1,34 +1,35 @@
 package net.dungeonz.block.entity;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.Map.Entry;
 
 import org.jetbrains.annotations.Nullable;
 
+import net.dungeonz.DungeonzMain;
 import net.dungeonz.block.screen.DungeonPortalScreenHandler;
 import net.dungeonz.dungeon.Dungeon;
+import net.dungeonz.dungeon.DungeonInstance;
+import net.dungeonz.dungeon.DungeonInstanceState;
+import net.dungeonz.dungeon.DungeonLootPreview;
+import net.dungeonz.dungeon.DungeonWarmPool;
 import net.dungeonz.init.BlockInit;
+import net.dungeonz.init.ConfigInit;
 import net.dungeonz.init.CriteriaInit;
+import net.dungeonz.init.DimensionInit;
 import net.dungeonz.init.SoundInit;
 import net.dungeonz.util.DungeonHelper;
 import net.dungeonz.util.InventoryHelper;
 import net.fabricmc.fabric.api.screenhandler.v1.ExtendedScreenHandlerFactory;
-import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.entity.BlockEntity;
-import net.minecraft.entity.ai.TargetPredicate;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.entity.player.PlayerInventory;
-import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
 import net.minecraft.network.PacketByteBuf;
-import net.minecraft.registry.Registries;
 import net.minecraft.screen.ScreenHandler;
 import net.minecraft.screen.ScreenHandlerContext;
 import net.minecraft.server.network.ServerPlayerEntity;
@@ -36,33 +37,31 @@ import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.text.Text;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
+import net.partyaddon.access.GroupManagerAccess;
+import net.partyaddon.group.GroupManager;
 
 public class DungeonPortalEntity extends BlockEntity implements ExtendedScreenHandlerFactory {
 
+    private static final int NBT_VERSION = 2;
+    private static int clientPortalVersion = 0;
+
     private Text title = Text.translatable("container.dungeon_portal");
     private String dungeonType = "";
     private String difficulty = "";
-    private boolean dungeonStructureGenerated = false;
-    private List<UUID> dungeonPlayerUuids = new ArrayList<UUID>();
-    private List<UUID> deadDungeonPlayerUuids = new ArrayList<UUID>();
     private int maxGroupSize = 0;
     private int minGroupSize = 0;
     private List<UUID> waitingUuids = new ArrayList<UUID>();
-    private int cooldownTime = 0;
-    private int autoKickTime = 0;
     private boolean disableEffects = false;
     private boolean privateGroup = false;
-    private HashMap<Integer, ArrayList<BlockPos>> blockBlockPosMap = new HashMap<Integer, ArrayList<BlockPos>>();
-    private List<BlockPos> chestPosList = new ArrayList<BlockPos>();
-    private List<BlockPos> exitPosList = new ArrayList<BlockPos>();
-    private List<BlockPos> gatePosList = new ArrayList<BlockPos>();
-    private BlockPos bossBlockPos = new BlockPos(0, 0, 0);
-    private BlockPos bossLootBlockPos = new BlockPos(0, 0, 0);
-    private HashMap<BlockPos, Integer> spawnerPosEntityIdMap = new HashMap<BlockPos, Integer>();
-    private HashMap<BlockPos, Integer> replacePosBlockIdMap = new HashMap<BlockPos, Integer>();
-    private List<Integer> dungeonEdgeList = new ArrayList<Integer>();
+    private List<DungeonInstance> instances = new ArrayList<DungeonInstance>();
+    // Stands in for a not yet allocated instance, open portal screens resolve their view every tick
+    @Nullable
+    private DungeonInstance previewInstance = null;
+    @Nullable
+    private Dungeon dungeon = null;
+    private int dungeonGeneration = -1;
 
     public DungeonPortalEntity(BlockPos pos, BlockState state) {
         super(BlockInit.DUNGEON_PORTAL_ENTITY, pos, state);
@@ -72,216 +71,105 @@ public class DungeonPortalEntity extends BlockEntity implements ExtendedScreenHa
     public void readNbt(NbtCompound nbt) {
         super.readNbt(nbt);
         this.dungeonType = nbt.getString("DungeonType");
+        this.dungeonGeneration = -1;
         this.difficulty = nbt.getString("Difficulty");
-        this.dungeonStructureGenerated = nbt.getBoolean("DungeonStructureGenerated");
-        this.dungeonPlayerUuids.clear();
-        for (int i = 0; i < nbt.getInt("DungeonPlayerCount"); i++) {
-            this.dungeonPlayerUuids.add(nbt.getUuid("PlayerUUID" + i));
-        }
-        this.deadDungeonPlayerUuids.clear();
-        for (int i = 0; i < nbt.getInt("DeadDungeonPlayerCount"); i++) {
-            this.deadDungeonPlayerUuids.add(nbt.getUuid("DeadPlayerUUID" + i));
-        }
         this.maxGroupSize = nbt.getInt("MaxGroupSize");
         this.minGroupSize = nbt.getInt("MinGroupSize");
-        this.cooldownTime = nbt.getInt("CooldownTime");
-        this.autoKickTime = nbt.getInt("AutoKickTime");
         this.disableEffects = nbt.getBoolean("DisableEffects");
         this.privateGroup = nbt.getBoolean("PrivateGroup");
-        this.blockBlockPosMap.clear();
-        if (nbt.getInt("BlockMapSize") > 0) {
-            for (int i = 0; i < nbt.getInt("BlockMapSize"); i++) {
-                ArrayList<BlockPos> posList = new ArrayList<>();
-                for (int u = 0; u < nbt.getInt("BlockListSize" + i); u++) {
-                    posList.add(new BlockPos(nbt.getInt("BlockPosX" + u), nbt.getInt("BlockPosY" + u), nbt.getInt("BlockPosZ" + u)));
-                }
-                this.blockBlockPosMap.put(nbt.getInt("BlockId" + i), posList);
-            }
+        this.instances.clear();
+        if (nbt.getBoolean("ClientView")) {
+            this.getViewInstance().setCooldownTime(nbt.getInt("CooldownTime"));
+            return;
         }
-
-        this.bossBlockPos = new BlockPos(nbt.getInt("BossPosX"), nbt.getInt("BossPosY"), nbt.getInt("BossPosZ"));
-        this.bossLootBlockPos = new BlockPos(nbt.getInt("BossLootPosX"), nbt.getInt("BossLootPosY"), nbt.getInt("BossLootPosZ"));
-
-        if (nbt.getInt("ChestListSize") > 0) {
-            this.chestPosList.clear();
-            for (int i = 0; i < nbt.getInt("ChestListSize"); i++) {
-                this.chestPosList.add(new BlockPos(nbt.getInt("ChestPosX" + i), nbt.getInt("ChestPosY" + i), nbt.getInt("ChestPosZ" + i)));
+        if (nbt.getInt("NbtVersion") < 2) {
+            // Older portals owned a single dungeon at the portal based origin
+            DungeonInstance instance = new DungeonInstance(0, getLegacyOrigin(this.pos));
+            if (nbt.getInt("NbtVersion") < 1) {
+                instance.readLegacyNbt(nbt);
+            } else {
+                instance.readNbt(nbt);
             }
+            this.instances.add(instance);
+            return;
         }
-
-        if (nbt.getInt("ExitListSize") > 0) {
-            this.exitPosList.clear();
-            for (int i = 0; i < nbt.getInt("ExitListSize"); i++) {
-                this.exitPosList.add(new BlockPos(nbt.getInt("ExitPosX" + i), nbt.getInt("ExitPosY" + i), nbt.getInt("ExitPosZ" + i)));
-            }
-        }
-
-        if (nbt.getInt("SpawnerMapSize") > 0) {
-            this.spawnerPosEntityIdMap.clear();
-            for (int i = 0; i < nbt.getInt("SpawnerListSize"); i++) {
-                this.spawnerPosEntityIdMap.put(new BlockPos(nbt.getInt("SpawnerPosX" + i), nbt.getInt("SpawnerPosY" + i), nbt.getInt("SpawnerPosZ" + i)), nbt.getInt("SpawnerEntityId" + i));
-            }
-        }
-
-        if (nbt.getInt("ReplacePosSize") > 0) {
-            this.replacePosBlockIdMap.clear();
-            for (int i = 0; i < nbt.getInt("ReplacePosSize"); i++) {
-                this.replacePosBlockIdMap.put(new BlockPos(nbt.getInt("ReplacePosX" + i), nbt.getInt("ReplacePosY" + i), nbt.getInt("ReplacePosZ" + i)), nbt.getInt("ReplaceBlockId" + i));
-            }
-        }
-
-        if (nbt.getInt("DungeonEdgeSize") > 0) {
-            this.dungeonEdgeList.clear();
-            for (int i = 0; i < nbt.getInt("DungeonEdgeSize") / 3; i++) {
-                this.dungeonEdgeList.add(nbt.getInt("DungeonEdgeX" + i));
-                this.dungeonEdgeList.add(nbt.getInt("DungeonEdgeY" + i));
-                this.dungeonEdgeList.add(nbt.getInt("DungeonEdgeZ" + i));
-            }
-        }
-
-        if (nbt.getInt("GateListSize") > 0) {
-            this.gatePosList.clear();
-            for (int i = 0; i < nbt.getInt("GateListSize"); i++) {
-                this.gatePosList.add(new BlockPos(nbt.getInt("GatePosX" + i), nbt.getInt("GatePosY" + i), nbt.getInt("GatePosZ" + i)));
-            }
+        NbtList instanceList = nbt.getList("Instances", NbtElement.COMPOUND_TYPE);
+        for (int i = 0; i < instanceList.size(); i++) {
+            this.instances.add(DungeonInstance.fromNbt(instanceList.getCompound(i)));
         }
     }
 
     @Override
     public void writeNbt(NbtCompound nbt) {
         super.writeNbt(nbt);
+        this.writeClientNbt(nbt);
+        nbt.putInt("NbtVersion", NBT_VERSION);
+        NbtList instanceList = new NbtList();
+        for (int i = 0; i < this.instances.size(); i++) {
+            instanceList.add(this.instances.get(i).toNbt());
+        }
+        nbt.put("Instances", instanceList);
+    }
+
+    // Only the fields the op screen and the display name need, the dungeon index stays on the server
+    private void writeClientNbt(NbtCompound nbt) {
         nbt.putString("DungeonType", this.dungeonType);
         nbt.putString("Difficulty", this.difficulty);
-        nbt.putBoolean("DungeonStructureGenerated", this.dungeonStructureGenerated);
-        nbt.putInt("DungeonPlayerCount", this.dungeonPlayerUuids.size());
-        for (int i = 0; i < this.dungeonPlayerUuids.size(); i++) {
-            nbt.putUuid("PlayerUUID" + i, this.dungeonPlayerUuids.get(i));
-        }
-        nbt.putInt("DeadDungeonPlayerCount", this.deadDungeonPlayerUuids.size());
-        for (int i = 0; i < this.deadDungeonPlayerUuids.size(); i++) {
-            nbt.putUuid("DeadPlayerUUID" + i, this.deadDungeonPlayerUuids.get(i));
-        }
         nbt.putInt("MaxGroupSize", this.maxGroupSize);
         nbt.putInt("MinGroupSize", this.minGroupSize);
-        nbt.putInt("CooldownTime", this.cooldownTime);
-        nbt.putInt("AutoKickTime", this.autoKickTime);
         nbt.putBoolean("DisableEffects", this.disableEffects);
         nbt.putBoolean("PrivateGroup", this.privateGroup);
+    }
 
-        nbt.putInt("BlockMapSize", this.blockBlockPosMap.size());
-        if (this.blockBlockPosMap.size() > 0) {
-            int blockCount = 0;
-            Iterator<Entry<Integer, ArrayList<BlockPos>>> iterator = this.blockBlockPosMap.entrySet().iterator();
-            while (iterator.hasNext()) {
-                Entry<Integer, ArrayList<BlockPos>> entry = iterator.next();
-                nbt.putInt("BlockId" + blockCount, entry.getKey());
-                nbt.putInt("BlockListSize" + blockCount, entry.getValue().size());
-                for (int i = 0; i < entry.getValue().size(); i++) {
-                    nbt.putInt("BlockPosX" + blockCount, entry.getValue().get(i).getX());
-                    nbt.putInt("BlockPosY" + blockCount, entry.getValue().get(i).getY());
-                    nbt.putInt("BlockPosZ" + blockCount, entry.getValue().get(i).getZ());
-                }
-                blockCount++;
-            }
-        }
-
-        nbt.putInt("BossPosX", this.bossBlockPos.getX());
-        nbt.putInt("BossPosY", this.bossBlockPos.getY());
-        nbt.putInt("BossPosZ", this.bossBlockPos.getZ());
-
-        nbt.putInt("BossLootPosX", this.bossLootBlockPos.getX());
-        nbt.putInt("BossLootPosY", this.bossLootBlockPos.getY());
-        nbt.putInt("BossLootPosZ", this.bossLootBlockPos.getZ());
-
-        nbt.putInt("ChestListSize", this.chestPosList.size());
-        if (this.chestPosList.size() > 0) {
-            for (int i = 0; i < this.chestPosList.size(); i++) {
-                nbt.putInt("ChestPosX" + i, this.chestPosList.get(i).getX());
-                nbt.putInt("ChestPosY" + i, this.chestPosList.get(i).getY());
-                nbt.putInt("ChestPosZ" + i, this.chestPosList.get(i).getZ());
-            }
-        }
-
-        nbt.putInt("ExitListSize", this.exitPosList.size());
-        if (this.exitPosList.size() > 0) {
-            for (int i = 0; i < this.exitPosList.size(); i++) {
-                nbt.putInt("ExitPosX" + i, this.exitPosList.get(i).getX());
-                nbt.putInt("ExitPosY" + i, this.exitPosList.get(i).getY());
-                nbt.putInt("ExitPosZ" + i, this.exitPosList.get(i).getZ());
-            }
-        }
-
-        nbt.putInt("SpawnerMapSize", this.spawnerPosEntityIdMap.size());
-        if (this.spawnerPosEntityIdMap.size() > 0) {
-            Iterator<Entry<BlockPos, Integer>> iterator = this.spawnerPosEntityIdMap.entrySet().iterator();
-            int count = 0;
-            while (iterator.hasNext()) {
-                Entry<BlockPos, Integer> entry = iterator.next();
-                nbt.putInt("SpawnerPosX" + count, entry.getKey().getX());
-                nbt.putInt("SpawnerPosY" + count, entry.getKey().getY());
-                nbt.putInt("SpawnerPosZ" + count, entry.getKey().getZ());
-                nbt.putInt("SpawnerEntityId" + count, entry.getValue());
-                count++;
-            }
-        }
-
-        nbt.putInt("ReplacePosSize", this.replacePosBlockIdMap.size());
-        if (this.replacePosBlockIdMap.size() > 0) {
-            Iterator<Entry<BlockPos, Integer>> iterator = this.replacePosBlockIdMap.entrySet().iterator();
-            int count = 0;
-            while (iterator.hasNext()) {
-                Entry<BlockPos, Integer> entry = iterator.next();
-                nbt.putInt("ReplacePosX" + count, entry.getKey().getX());
-                nbt.putInt("ReplacePosY" + count, entry.getKey().getY());
-                nbt.putInt("ReplacePosZ" + count, entry.getKey().getZ());
-                nbt.putInt("ReplaceBlockId" + count, entry.getValue());
-                count++;
-            }
+    @Override
+    public void setWorld(World world) {
+        super.setWorld(world);
+        if (world.isClient()) {
+            clientPortalVersion++;
         }
+    }
 
-        nbt.putInt("DungeonEdgeSize", this.dungeonEdgeList.size());
-        if (this.dungeonEdgeList.size() > 0) {
-            for (int i = 0; i < this.dungeonEdgeList.size() / 3; i++) {
-                nbt.putInt("DungeonEdgeX" + i, this.dungeonEdgeList.get(3 * i));
-                nbt.putInt("DungeonEdgeY" + i, this.dungeonEdgeList.get(1 + 3 * i));
-                nbt.putInt("DungeonEdgeZ" + i, this.dungeonEdgeList.get(2 + 3 * i));
-            }
+    @Override
+    public void markRemoved() {
+        super.markRemoved();
+        if (this.world != null && this.world.isClient()) {
+            clientPortalVersion++;
         }
+    }
 
-        nbt.putInt("GateListSize", this.gatePosList.size());
-        if (this.gatePosList.size() > 0) {
-            for (int i = 0; i < this.gatePosList.size(); i++) {
-                nbt.putInt("GatePosX" + i, this.gatePosList.get(i).getX());
-                nbt.putInt("GatePosY" + i, this.gatePosList.get(i).getY());
-                nbt.putInt("GatePosZ" + i, this.gatePosList.get(i).getZ());
-            }
-        }
+    // Bumped whenever a portal block entity appears or disappears on the client, the portal renderer rebuilds its clusters then
+    public static int getClientPortalVersion() {
+        return clientPortalVersion;
     }
 
     public static void clientTick(World world, BlockPos pos, BlockState state, DungeonPortalEntity blockEntity) {
     }
 
     public static void serverTick(World world, BlockPos pos, BlockState state, DungeonPortalEntity blockEntity) {
-        if (blockEntity.getDungeonPlayerCount() > 0) {
-            if (blockEntity.autoKickTime == 0) {
-                blockEntity.autoKickTime = (int) world.getTime() + 432000;
-            } else if (blockEntity.autoKickTime < (int) world.getTime()) {
-                if (blockEntity.getDungeon() != null) {
-                    blockEntity.setCooldownTime(blockEntity.getDungeon().getCooldown() + (int) blockEntity.getWorld().getTime());
-                    for (int i = 0; i < blockEntity.getDungeonPlayerUuids().size(); i++) {
-                        ServerPlayerEntity player = (ServerPlayerEntity) world.getPlayerByUuid(blockEntity.getDungeonPlayerUuids().get(i));
-                        if (DungeonHelper.getCurrentDungeon(player) != null) {
-                            DungeonHelper.teleportOutOfDungeon(player);
-                            player.sendMessage(Text.translatable("text.dungeonz.dungeon_autokick"));
+        for (int u = 0; u < blockEntity.instances.size(); u++) {
+            DungeonInstance instance = blockEntity.instances.get(u);
+            if (instance.getDungeonPlayerCount() > 0) {
+                if (instance.getAutoKickTime() == 0) {
+                    instance.setAutoKickTime((int) world.getTime() + 432000);
+                } else if (instance.getAutoKickTime() < (int) world.getTime()) {
+                    if (blockEntity.getDungeon() != null) {
+                        instance.setCooldownTime(blockEntity.getDungeon().getCooldown() + (int) world.getTime());
+                        for (int i = 0; i < instance.getDungeonPlayerUuids().size(); i++) {
+                            ServerPlayerEntity player = world.getServer().getPlayerManager().getPlayer(instance.getDungeonPlayerUuids().get(i));
+                            if (player != null && DungeonHelper.getCurrentDungeon(player) != null) {
+                                DungeonHelper.teleportOutOfDungeon(player);
+                                player.sendMessage(Text.translatable("text.dungeonz.dungeon_autokick"));
+                            }
                         }
                     }
+                    instance.getDungeonPlayerUuids().clear();
+                    instance.getDeadDungeonPlayerUUIDs().clear();
+                    instance.setAutoKickTime(0);
+                    blockEntity.markDirty();
                 }
-                blockEntity.getDungeonPlayerUuids().clear();
-                blockEntity.getDeadDungeonPlayerUUIDs().clear();
-                blockEntity.autoKickTime = 0;
+            } else if (instance.getAutoKickTime() != 0) {
+                instance.setAutoKickTime(0);
             }
-        } else if (blockEntity.autoKickTime != 0) {
-            blockEntity.autoKickTime = 0;
         }
     }
 
@@ -295,11 +183,18 @@ public class DungeonPortalEntity extends BlockEntity implements ExtendedScreenHa
 
     @Override
     public NbtCompound toInitialChunkDataNbt() {
-        return this.createNbt();
+        NbtCompound nbtCompound = new NbtCompound();
+        this.writeClientNbt(nbtCompound);
+        nbtCompound.putInt("CooldownTime", this.getCooldownTime());
+        nbtCompound.putBoolean("ClientView", true);
+        return nbtCompound;
     }
 
     @Override
     public ScreenHandler createMenu(int syncId, PlayerInventory playerInventory, PlayerEntity playerEntity) {
+        if (this.world instanceof ServerWorld serverWorld) {
+            DungeonWarmPool.onScreenOpened(serverWorld, this);
+        }
         return new DungeonPortalScreenHandler(syncId, playerInventory, this, ScreenHandlerContext.create(world, pos));
     }
 
@@ -309,13 +204,14 @@ public class DungeonPortalEntity extends BlockEntity implements ExtendedScreenHa
         buf.writeBlockPos(this.pos);
         buf.writeBlockPos(this.pos);
 
-        buf.writeInt(this.getDungeonPlayerCount());
-        for (int i = 0; i < this.getDungeonPlayerCount(); i++) {
-            buf.writeUuid(this.getDungeonPlayerUuids().get(i));
+        DungeonInstance instance = this.getViewInstance(player);
+        buf.writeInt(instance.getDungeonPlayerCount());
+        for (int i = 0; i < instance.getDungeonPlayerCount(); i++) {
+            buf.writeUuid(instance.getDungeonPlayerUuids().get(i));
         }
-        buf.writeInt(this.getDeadDungeonPlayerUUIDs().size());
-        for (int i = 0; i < this.getDeadDungeonPlayerUUIDs().size(); i++) {
-            buf.writeUuid(this.getDeadDungeonPlayerUUIDs().get(i));
+        buf.writeInt(instance.getDeadDungeonPlayerUUIDs().size());
+        for (int i = 0; i < instance.getDeadDungeonPlayerUUIDs().size(); i++) {
+            buf.writeUuid(instance.getDeadDungeonPlayerUUIDs().get(i));
         }
 
         if (this.getDungeon() != null) {
@@ -324,23 +220,8 @@ public class DungeonPortalEntity extends BlockEntity implements ExtendedScreenHa
             for (int i = 0; i < this.getDungeon().getDifficultyList().size(); i++) {
                 buf.writeString(this.getDungeon().getDifficultyList().get(i));
             }
-            // Possible Loot Items
-            Map<String, List<ItemStack>> possibleLoot = DungeonHelper.getPossibleLootItemStackMap(this.getDungeon(), player.getServer());
-            buf.writeInt(possibleLoot.size());
-            Iterator<Entry<String, List<ItemStack>>> possibleLootIterator = possibleLoot.entrySet().iterator();
-            while (possibleLootIterator.hasNext()) {
-                Entry<String, List<ItemStack>> entry = possibleLootIterator.next();
-                buf.writeString(entry.getKey());
-                buf.writeInt(entry.getValue().size());
-                for (int i = 0; i < entry.getValue().size(); i++) {
-                    buf.writeItemStack(entry.getValue().get(i));
-                }
-            }
-            // Required Items
-            buf.writeInt(DungeonHelper.getRequiredItemStackList(this.getDungeon()).size());
-            for (int i = 0; i < DungeonHelper.getRequiredItemStackList(this.getDungeon()).size(); i++) {
-                buf.writeItemStack(DungeonHelper.getRequiredItemStackList(this.getDungeon()).get(i));
-            }
+            // Possible Loot Items and Required Items, serialized once per reload
+            DungeonLootPreview.writeScreenData(this.getDungeon(), player.getServer(), buf);
         } else {
             buf.writeInt(0);
             buf.writeInt(0);
@@ -350,116 +231,195 @@ public class DungeonPortalEntity extends BlockEntity implements ExtendedScreenHa
         buf.writeInt(this.getMaxGroupSize());
         buf.writeInt(this.getMinGroupSize());
         buf.writeInt(this.getWaitingUuids().size());
-        buf.writeInt(this.getCooldownTime());
+        buf.writeInt(instance.getCooldownTime());
         buf.writeString(this.getDifficulty());
         buf.writeBoolean(this.getDisableEffects());
         buf.writeBoolean(this.getPrivateGroup());
     }
 
-    public void finishDungeon(ServerWorld world, BlockPos pos) {
-        List<PlayerEntity> players = world.getPlayers(TargetPredicate.createAttackable().setBaseMaxDistance(64.0), null, new Box(pos).expand(64.0, 64.0, 64.0));
-        for (int i = 0; i < players.size(); i++) {
-            CriteriaInit.DUNGEON_COMPLETION.trigger((ServerPlayerEntity) players.get(i), this.getDungeonType(), this.getDifficulty());
+    public void finishDungeon(ServerWorld world, BlockPos pos, int instanceIndex) {
+        DungeonInstance instance = this.getInstance(instanceIndex);
+        if (instance == null) {
+            return;
+        }
+        // The instance knows its players, no need to query the area around the boss
+        for (int i = 0; i < instance.getDungeonPlayerUuids().size(); i++) {
+            if (world.getPlayerByUuid(instance.getDungeonPlayerUuids().get(i)) instanceof ServerPlayerEntity serverPlayerEntity && serverPlayerEntity.squaredDistanceTo(Vec3d.ofCenter(pos)) <= 4096.0D) {
+                CriteriaInit.DUNGEON_COMPLETION.trigger(serverPlayerEntity, this.getDungeonType(), instance.getDifficulty());
+            }
         }
         world.playSound(null, pos, SoundInit.DUNGEON_COMPLETION_EVENT, SoundCategory.BLOCKS, 1.0f, 0.9f + world.getRandom().nextFloat() * 0.2f);
 
-        for (int i = 0; i < this.getExitPosList().size(); i++) {
-            world.setBlockState(this.getExitPosList().get(i), BlockInit.DUNGEON_PORTAL.getDefaultState(), 3);
+        for (int i = 0; i < instance.getExitPosList().size(); i++) {
+            world.setBlockState(instance.getExitPosList().get(i), BlockInit.DUNGEON_PORTAL.getDefaultState(), 3);
         }
 
-        world.setBlockState(this.getBossLootBlockPos(), Blocks.CHEST.getDefaultState(), 3);
-        InventoryHelper.fillInventoryWithLoot(world.getServer(), world, this.getBossLootBlockPos(), this.getDungeon().getDifficultyBossLootTableMap().get(this.getDifficulty()),
-                this.getDisableEffects());
+        world.setBlockState(instance.getBossLootBlockPos(), Blocks.CHEST.getDefaultState(), 3);
+        InventoryHelper.fillInventoryWithLoot(world.getServer(), world, instance.getBossLootBlockPos(), this.getDungeon().getDifficultyBossLootTableMap().get(instance.getDifficulty()),
+                instance.getDisableEffects());
 
-        this.setCooldownTime(this.getDungeon().getCooldown() + (int) this.getWorld().getTime());
+        instance.setCooldownTime(this.getDungeon().getCooldown() + (int) this.getWorld().getTime());
         markDirty();
     }
 
+    public static BlockPos getLegacyOrigin(BlockPos portalPos) {
+        return new BlockPos(portalPos.getX() * 16, 100, portalPos.getZ() * 16);
+    }
+
     @Nullable
-    public Dungeon getDungeon() {
-        return Dungeon.getDungeon(this.dungeonType);
+    public DungeonInstance getInstance(int index) {
+        for (int i = 0; i < this.instances.size(); i++) {
+            if (this.instances.get(i).getIndex() == index) {
+                return this.instances.get(i);
+            }
+        }
+        return null;
     }
 
-    public void setDungeonType(String dungeonType) {
-        this.dungeonType = dungeonType;
+    public List<DungeonInstance> getInstances() {
+        return this.instances;
     }
 
-    public String getDungeonType() {
-        return this.dungeonType;
+    public DungeonInstance getViewInstance() {
+        return this.getViewInstance(null);
     }
 
-    public void setDifficulty(String difficulty) {
-        this.difficulty = difficulty;
+    // The instance the player would join: a running group with space, a free instance or an unsaved preview of a new one
+    public DungeonInstance getViewInstance(@Nullable ServerPlayerEntity player) {
+        // Nothing is added here, only getJoinInstance and allocateInstance create saved instances
+        if (this.instances.isEmpty()) {
+            return this.getPreviewInstance();
+        }
+        if (this.world == null || this.world.isClient()) {
+            return this.instances.get(0);
+        }
+        int time = (int) this.world.getTime();
+        for (int i = 0; i < this.instances.size(); i++) {
+            DungeonInstance instance = this.instances.get(i);
+            if ((instance.getDungeonPlayerCount() > 0 || instance.isReserved()) && !instance.isOnCooldown(time)
+                    && instance.getDungeonPlayerCount() + instance.getDeadDungeonPlayerUUIDs().size() < this.maxGroupSize
+                    && (!instance.getPrivateGroup() || (player != null && isGroupMember(player, instance)))) {
+                return instance;
+            }
+        }
+        DungeonInstance freeInstance = null;
+        for (int i = 0; i < this.instances.size(); i++) {
+            DungeonInstance instance = this.instances.get(i);
+            if (instance.isFree(time) && (freeInstance == null || (!freeInstance.isDungeonStructureGenerated() && instance.isDungeonStructureGenerated()))) {
+                freeInstance = instance;
+            }
+        }
+        if (freeInstance != null) {
+            return freeInstance;
+        }
+        if (this.instances.size() < ConfigInit.CONFIG.maxDungeonInstances && this.world.getServer().getWorld(DimensionInit.DUNGEON_WORLD) != null) {
+            return this.getPreviewInstance();
+        }
+        DungeonInstance waitInstance = this.instances.get(0);
+        for (int i = 1; i < this.instances.size(); i++) {
+            if (this.instances.get(i).getCooldownTime() < waitInstance.getCooldownTime()) {
+                waitInstance = this.instances.get(i);
+            }
+        }
+        return waitInstance;
     }
 
-    public String getDifficulty() {
-        return this.difficulty;
+    private DungeonInstance getPreviewInstance() {
+        if (this.previewInstance == null) {
+            this.previewInstance = new DungeonInstance(-1, getLegacyOrigin(this.pos));
+        }
+        return this.previewInstance;
     }
 
-    public void setDungeonStructureGenerated() {
-        this.dungeonStructureGenerated = true;
+    // Only a player who passed the join checks turns a preview into a saved instance
+    @Nullable
+    public DungeonInstance getJoinInstance(DungeonInstance viewInstance) {
+        if (!viewInstance.isPreview()) {
+            return viewInstance;
+        }
+        ServerWorld dungeonWorld = this.world.getServer().getWorld(DimensionInit.DUNGEON_WORLD);
+        return dungeonWorld != null ? this.allocateInstance(dungeonWorld) : null;
     }
 
-    public boolean isDungeonStructureGenerated() {
-        return this.dungeonStructureGenerated;
+    @Nullable
+    public DungeonInstance allocateInstance(ServerWorld dungeonWorld) {
+        if (this.instances.size() >= ConfigInit.CONFIG.maxDungeonInstances) {
+            return null;
+        }
+        int index = 0;
+        for (int i = 0; i < this.instances.size(); i++) {
+            index = Math.max(index, this.instances.get(i).getIndex() + 1);
+        }
+        DungeonInstance instance = new DungeonInstance(index, index == 0 ? getLegacyOrigin(this.pos) : DungeonInstanceState.get(dungeonWorld).allocateOrigin());
+        this.instances.add(instance);
+        this.markDirty();
+        return instance;
     }
 
-    public void joinDungeon(UUID playerUuid) {
-        if (!this.dungeonPlayerUuids.contains(playerUuid)) {
-            this.dungeonPlayerUuids.add(playerUuid);
+    private static boolean isGroupMember(ServerPlayerEntity player, DungeonInstance instance) {
+        if (!DungeonzMain.isPartyAddonLoaded || instance.getDungeonPlayerUuids().isEmpty()) {
+            return false;
         }
+        GroupManager groupManager = ((GroupManagerAccess) player).getGroupManager();
+        return !groupManager.getGroupPlayerIdList().isEmpty() && groupManager.getGroupPlayerIdList().contains(instance.getDungeonPlayerUuids().get(0));
     }
 
-    public void leaveDungeon(UUID playerUuid) {
-        this.dungeonPlayerUuids.remove(playerUuid);
+    @Nullable
+    public Dungeon getDungeon() {
+        if (this.dungeonGeneration != Dungeon.getGeneration()) {
+            this.dungeon = Dungeon.getDungeon(this.dungeonType);
+            this.dungeonGeneration = Dungeon.getGeneration();
+        }
+        return this.dungeon;
     }
 
-    public int getDungeonPlayerCount() {
-        return this.dungeonPlayerUuids.size();
+    public void setDungeonType(String dungeonType) {
+        this.dungeonType = dungeonType;
+        this.dungeonGeneration = -1;
     }
 
-    public void setDungeonPlayerUuids(List<UUID> dungeonPlayerUuids) {
-        this.dungeonPlayerUuids = dungeonPlayerUuids;
+    public String getDungeonType() {
+        return this.dungeonType;
     }
 
-    public List<UUID> getDungeonPlayerUuids() {
-        return this.dungeonPlayerUuids;
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public String getDifficulty() {
+        return this.difficulty;
     }
 
-    public void addDeadDungeonPlayerUuids(UUID deadDungeonPlayerUuids) {
-        this.deadDungeonPlayerUuids.add(deadDungeonPlayerUuids);
+    public int getDungeonPlayerCount() {
+        return this.getViewInstance().getDungeonPlayerCount();
     }
 
-    public void setDeadDungeonPlayerUuids(List<UUID> deadDungeonPlayerUuids) {
-        this.deadDungeonPlayerUuids = deadDungeonPlayerUuids;
+    public void setDungeonPlayerUuids(List<UUID> dungeonPlayerUuids) {
+        this.getViewInstance().setDungeonPlayerUuids(dungeonPlayerUuids);
     }
 
-    public List<UUID> getDeadDungeonPlayerUUIDs() {
-        return this.deadDungeonPlayerUuids;
+    public List<UUID> getDungeonPlayerUuids() {
+        return this.getViewInstance().getDungeonPlayerUuids();
     }
 
-    // Might lead to issues if using "="
-    public void setBlockMap(HashMap<Integer, ArrayList<BlockPos>> map) {
-        this.blockBlockPosMap = map;
+    public void setDeadDungeonPlayerUuids(List<UUID> deadDungeonPlayerUuids) {
+        this.getViewInstance().setDeadDungeonPlayerUuids(deadDungeonPlayerUuids);
     }
 
-    public HashMap<Integer, ArrayList<BlockPos>> getBlockMap() {
-        return this.blockBlockPosMap;
+    public List<UUID> getDeadDungeonPlayerUUIDs() {
+        return this.getViewInstance().getDeadDungeonPlayerUUIDs();
     }
 
     public void setCooldownTime(int cooldownTime) {
-        this.cooldownTime = cooldownTime;
+        this.getViewInstance().setCooldownTime(cooldownTime);
     }
 
     public int getCooldownTime() {
-        return this.cooldownTime;
+        return this.getViewInstance().getCooldownTime();
     }
 
     public boolean isOnCooldown(int currentTime) {
-        if (this.cooldownTime <= currentTime) {
-            return false;
-        }
-        return true;
+        return this.getViewInstance().isOnCooldown(currentTime);
     }
 
     public void setMaxGroupSize(int maxGroupSize) {
@@ -504,74 +464,4 @@ public class DungeonPortalEntity extends BlockEntity implements ExtendedScreenHa
         return this.privateGroup;
     }
 
-    public void setBossBlockPos(BlockPos pos) {
-        this.bossBlockPos = pos;
-    }
-
-    public BlockPos getBossBlockPos() {
-        return this.bossBlockPos;
-    }
-
-    public void setBossLootBlockPos(BlockPos pos) {
-        this.bossLootBlockPos = pos;
-    }
-
-    public BlockPos getBossLootBlockPos() {
-        return this.bossLootBlockPos;
-    }
-
-    public void setChestPosList(List<BlockPos> chestPosList) {
-        this.chestPosList = chestPosList;
-    }
-
-    public List<BlockPos> getChestPosList() {
-        return this.chestPosList;
-    }
-
-    public void setGatePosList(List<BlockPos> gatePosList) {
-        this.gatePosList = gatePosList;
-    }
-
-    public List<BlockPos> getGatePosList() {
-        return this.gatePosList;
-    }
-
-    public void setExitPosList(List<BlockPos> exitPosList) {
-        this.exitPosList = exitPosList;
-    }
-
-    public List<BlockPos> getExitPosList() {
-        return this.exitPosList;
-    }
-
-    public void addDungeonEdge(int edgeX, int edgeY, int edgeZ) {
-        this.dungeonEdgeList.add(edgeX);
-        this.dungeonEdgeList.add(edgeY);
-        this.dungeonEdgeList.add(edgeZ);
-    }
-
-    public List<Integer> getDungeonEdgeList() {
-        return this.dungeonEdgeList;
-    }
-
-    public void setSpawnerPosEntityIdMap(HashMap<BlockPos, Integer> spawnerPosEntityIdMap) {
-        this.spawnerPosEntityIdMap = spawnerPosEntityIdMap;
-    }
-
-    public HashMap<BlockPos, Integer> getSpawnerPosEntityIdMap() {
-        return this.spawnerPosEntityIdMap;
-    }
-
-    public void setReplaceBlockIdMap(HashMap<BlockPos, Integer> replacePosBlockIdMap) {
-        this.replacePosBlockIdMap = replacePosBlockIdMap;
-    }
-
-    public void addReplaceBlockId(BlockPos pos, Block block) {
-        this.replacePosBlockIdMap.put(pos, Registries.BLOCK.getRawId(block));
-    }
-
-    public HashMap<BlockPos, Integer> getReplaceBlockIdMap() {
-        return this.replacePosBlockIdMap;
-    }
-
 }
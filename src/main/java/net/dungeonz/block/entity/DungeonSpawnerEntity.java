@@ -1,6 +1,7 @@
 package net.dungeonz.block.entity;
 
 import net.dungeonz.block.logic.DungeonSpawnerLogic;
+import net.dungeonz.dungeon.DungeonSpawnerTracker;
 import net.dungeonz.init.BlockInit;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
@@ -30,6 +31,8 @@ public class DungeonSpawnerEntity extends BlockEntity {
             }
         }
     };
+    @Nullable
+    private DungeonSpawnerTracker tracker;
 
     public DungeonSpawnerEntity(BlockPos pos, BlockState state) {
         super(BlockInit.DUNGEON_SPAWNER_ENTITY, pos, state);
@@ -39,6 +42,33 @@ public class DungeonSpawnerEntity extends BlockEntity {
     public void readNbt(NbtCompound nbt) {
         super.readNbt(nbt);
         this.logic.readNbt(this.world, this.pos, nbt);
+        // The player range may have changed
+        if (this.tracker != null && !this.isRemoved()) {
+            this.tracker.add(this);
+        }
+    }
+
+    @Override
+    public void setWorld(World world) {
+        super.setWorld(world);
+        this.tracker = DungeonSpawnerTracker.get(world);
+        this.tracker.add(this);
+    }
+
+    @Override
+    public void markRemoved() {
+        super.markRemoved();
+        if (this.tracker != null) {
+            this.tracker.remove(this);
+        }
+    }
+
+    @Override
+    public void cancelRemoval() {
+        super.cancelRemoval();
+        if (this.tracker != null) {
+            this.tracker.add(this);
+        }
     }
 
     @Override
@@ -48,10 +78,12 @@ public class DungeonSpawnerEntity extends BlockEntity {
     }
 
     public static void clientTick(World world, BlockPos pos, BlockState state, DungeonSpawnerEntity blockEntity) {
+        blockEntity.tracker.update(world);
         blockEntity.logic.clientTick(world, pos);
     }
 
     public static void serverTick(World world, BlockPos pos, BlockState state, DungeonSpawnerEntity blockEntity) {
+        blockEntity.tracker.update(world);
         blockEntity.logic.serverTick((ServerWorld) world, pos);
     }
 
@@ -5,26 +5,24 @@ import java.util.Optional;
 import java.util.function.Function;
 
 import net.dungeonz.dungeon.Dungeon;
-import net.dungeonz.dungeon.DungeonPlacementHandler;
+import net.dungeonz.dungeon.DungeonEntityTracker;
+import net.dungeonz.dungeon.DungeonSpawnTemplate;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
 import net.minecraft.entity.SpawnReason;
 import net.minecraft.entity.SpawnRestriction;
 import net.minecraft.entity.mob.MobEntity;
-import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
 import net.minecraft.nbt.NbtList;
 import net.minecraft.nbt.NbtOps;
 import net.minecraft.particle.ParticleTypes;
-import net.minecraft.predicate.entity.EntityPredicates;
 import net.minecraft.registry.Registries;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.collection.DataPool;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Box;
 import net.minecraft.util.math.random.Random;
-import net.minecraft.world.EntityView;
 import net.minecraft.world.MobSpawnerEntry;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldEvents;
@@ -51,26 +49,20 @@ public abstract class DungeonSpawnerLogic {
     private int totalSpawnCount = 0;
     private String difficulty = "";
     private Dungeon dungeon = null;
+    private String dungeonTypeId = "";
+    private int dungeonGeneration = -1;
     private int entityTypeId = 0;
-
-    private boolean isPlayerInRange(World world, BlockPos pos) {
-        return isPlayerInRange(world, (double) pos.getX() + 0.5, (double) pos.getY() + 0.5, (double) pos.getZ() + 0.5, this.requiredPlayerRange);
-    }
-
-    private boolean isPlayerInRange(EntityView world, double x, double y, double z, double range) {
-        for (PlayerEntity playerEntity : world.getPlayers()) {
-            if (!EntityPredicates.EXCEPT_CREATIVE_OR_SPECTATOR.test(playerEntity) || !EntityPredicates.VALID_LIVING_ENTITY.test(playerEntity))
-                continue;
-            double d = playerEntity.squaredDistanceTo(x, y, z);
-            if (!(range < 0.0) && !(d < range * range))
-                continue;
-            return true;
-        }
-        return false;
-    }
+    private long roomKey = DungeonEntityTracker.NO_ROOM;
+    // Set by the spawner tracker of the world
+    private boolean playerInRange = false;
+    // Resolved from the spawn entry on the first spawn after it changed
+    @Nullable
+    private DungeonSpawnTemplate spawnTemplate = null;
+    private int spawnTemplateGeneration = -1;
+    private boolean simpleSpawnEntry = false;
 
     public void clientTick(World world, BlockPos pos) {
-        if (!this.isPlayerInRange(world, pos)) {
+        if (!this.playerInRange) {
             this.randomParticleValueTwo = this.randomParticleValueOne;
         } else {
             Random random = world.getRandom();
@@ -88,7 +80,7 @@ public abstract class DungeonSpawnerLogic {
     }
 
     public void serverTick(ServerWorld world, BlockPos pos) {
-        if (!this.isPlayerInRange(world, pos)) {
+        if (!this.playerInRange) {
             return;
         }
         if (this.spawnDelay == -1) {
@@ -100,34 +92,43 @@ public abstract class DungeonSpawnerLogic {
         }
 
         boolean bl = false;
+        DungeonSpawnTemplate spawnTemplate = this.getSpawnTemplate();
+        if (spawnTemplate == null) {
+            this.updateSpawns(world, pos);
+            return;
+        }
         for (int i = 0; i < this.spawnCount; ++i) {
             // MobSpawnerEntry.CustomSpawnRules customSpawnRules;
             double f;
             NbtCompound nbtCompound = this.spawnEntry.getNbt();
-            Optional<EntityType<?>> optional = EntityType.fromNbt(nbtCompound);
-            if (optional.isEmpty()) {
-                this.updateSpawns(world, pos);
-                return;
-            }
-            NbtList nbtList = nbtCompound.getList("Pos", NbtElement.DOUBLE_TYPE);
-            int j = nbtList.size();
+            // An entry with only an id has no positions or passengers to read
+            NbtList nbtList = this.simpleSpawnEntry ? null : nbtCompound.getList("Pos", NbtElement.DOUBLE_TYPE);
+            int j = nbtList != null ? nbtList.size() : 0;
             Random random = world.getRandom();
             double d = j >= 1 ? nbtList.getDouble(0) : (double) pos.getX() + (random.nextDouble() - random.nextDouble()) * (double) this.spawnRange + 0.5;
             double e = j >= 2 ? nbtList.getDouble(1) : (double) (pos.getY() + random.nextInt(3) - 1);
             f = j >= 3 ? nbtList.getDouble(2) : (double) pos.getZ() + (random.nextDouble() - random.nextDouble()) * (double) this.spawnRange + 0.5;
-            if (!world.isSpaceEmpty(optional.get().createSimpleBoundingBox(d, e, f)))
+            if (!world.isSpaceEmpty(spawnTemplate.getBoundingBox(d, e, f)))
                 continue;
             BlockPos blockPos = BlockPos.ofFloored(d, e, f);
             // if (!this.spawnEntry.getCustomSpawnRules().isPresent() ? !SpawnRestriction.canSpawn(optional.get(), world, SpawnReason.SPAWNER, blockPos, world.getRandom())
             // : !optional.get().getSpawnGroup().isPeaceful() && world.getDifficulty() == Difficulty.PEACEFUL
             // || !(customSpawnRules = this.spawnEntry.getCustomSpawnRules().get()).blockLightLimit().contains(world.getLightLevel(LightType.BLOCK, blockPos))
             // || !customSpawnRules.skyLightLimit().contains(world.getLightLevel(LightType.SKY, blockPos)))
-            if (!SpawnRestriction.canSpawn(optional.get(), world, SpawnReason.SPAWNER, blockPos, world.getRandom()))
+            if (!SpawnRestriction.canSpawn(spawnTemplate.getType(), world, SpawnReason.SPAWNER, blockPos, world.getRandom()))
                 continue;
-            Entity entity2 = EntityType.loadEntityWithPassengers(nbtCompound, world, entity -> {
-                entity.refreshPositionAndAngles(d, e, f, entity.getYaw(), entity.getPitch());
-                return entity;
-            });
+            Entity entity2;
+            if (this.simpleSpawnEntry) {
+                entity2 = spawnTemplate.getType().create(world);
+                if (entity2 != null) {
+                    entity2.refreshPositionAndAngles(d, e, f, entity2.getYaw(), entity2.getPitch());
+                }
+            } else {
+                entity2 = EntityType.loadEntityWithPassengers(nbtCompound, world, entity -> {
+                    entity.refreshPositionAndAngles(d, e, f, entity.getYaw(), entity.getPitch());
+                    return entity;
+                });
+            }
             if (entity2 == null) {
                 this.updateSpawns(world, pos);
                 return;
@@ -142,12 +143,11 @@ public abstract class DungeonSpawnerLogic {
                 MobEntity mobEntity = (MobEntity) entity2;
                 if (this.spawnEntry.getCustomSpawnRules().isEmpty() && !mobEntity.canSpawn(world, SpawnReason.SPAWNER) || !mobEntity.canSpawn(world))
                     continue;
-                if (this.spawnEntry.getNbt().getSize() == 1 && this.spawnEntry.getNbt().contains("id", NbtElement.STRING_TYPE)) {
+                if (this.simpleSpawnEntry) {
                     ((MobEntity) entity2).initialize(world, world.getLocalDifficulty(entity2.getBlockPos()), SpawnReason.SPAWNER, null, null);
                 }
-                if (dungeon != null) {
-                    DungeonPlacementHandler.strengthenMob(mobEntity, dungeon, difficulty, false);
-                }
+                spawnTemplate.strengthen(mobEntity);
+                DungeonEntityTracker.track(mobEntity, this.roomKey);
             }
             if (!world.spawnNewEntityAndPassengers(entity2)) {
                 this.totalSpawnCount++;
@@ -214,10 +214,15 @@ public abstract class DungeonSpawnerLogic {
         this.maxSpawnCount = nbt.getInt("MaxSpawnCount");
         this.totalSpawnCount = nbt.getInt("TotalSpawnCount");
         this.difficulty = nbt.getString("Difficulty");
+        this.spawnTemplate = null;
         if (nbt.contains("Dungeon")) {
-            this.dungeon = Dungeon.getDungeon(nbt.getString("Dungeon"));
+            this.dungeonTypeId = nbt.getString("Dungeon");
+            this.dungeonGeneration = -1;
         }
         this.entityTypeId = nbt.getInt("EntityTypeId");
+        if (nbt.contains("DungeonRoomKey")) {
+            this.roomKey = nbt.getLong("DungeonRoomKey");
+        }
     }
 
     public NbtCompound writeNbt(NbtCompound nbt) {
@@ -233,10 +238,13 @@ public abstract class DungeonSpawnerLogic {
         nbt.putInt("MaxSpawnCount", this.maxSpawnCount);
         nbt.putInt("TotalSpawnCount", this.totalSpawnCount);
         nbt.putString("Difficulty", this.difficulty);
-        if (this.dungeon != null) {
-            nbt.putString("Dungeon", this.dungeon.getDungeonTypeId());
+        if (!this.dungeonTypeId.equals("")) {
+            nbt.putString("Dungeon", this.dungeonTypeId);
         }
         nbt.putInt("EntityTypeId", this.entityTypeId);
+        if (this.roomKey != DungeonEntityTracker.NO_ROOM) {
+            nbt.putLong("DungeonRoomKey", this.roomKey);
+        }
         return nbt;
     }
 
@@ -262,25 +270,69 @@ public abstract class DungeonSpawnerLogic {
     }
 
     public void setSpawnEntry(@Nullable World world, BlockPos pos, MobSpawnerEntry spawnEntry) {
+        // Spawn potentials hand out the same entries again, those keep their template
+        if (this.spawnEntry != spawnEntry) {
+            this.spawnTemplate = null;
+        }
         this.spawnEntry = spawnEntry;
     }
 
-    public void setDungeonInfo(Dungeon dungeon, String difficulty, int maxSpawnCount, EntityType<?> type) {
+    @Nullable
+    private DungeonSpawnTemplate getSpawnTemplate() {
+        if (this.spawnTemplate == null || this.spawnTemplateGeneration != Dungeon.getGeneration()) {
+            Optional<EntityType<?>> optional = EntityType.fromNbt(this.spawnEntry.getNbt());
+            if (optional.isEmpty()) {
+                return null;
+            }
+            this.spawnTemplate = DungeonSpawnTemplate.get(optional.get(), this.getDungeon(), this.difficulty);
+            this.spawnTemplateGeneration = Dungeon.getGeneration();
+            this.simpleSpawnEntry = this.spawnEntry.getNbt().getSize() == 1 && this.spawnEntry.getNbt().contains("id", NbtElement.STRING_TYPE);
+        }
+        return this.spawnTemplate;
+    }
+
+    @Nullable
+    private Dungeon getDungeon() {
+        if (this.dungeonGeneration != Dungeon.getGeneration()) {
+            this.dungeon = Dungeon.getDungeon(this.dungeonTypeId);
+            this.dungeonGeneration = Dungeon.getGeneration();
+        }
+        return this.dungeon;
+    }
+
+    public void setDungeonInfo(Dungeon dungeon, String difficulty, int maxSpawnCount, EntityType<?> type, long roomKey) {
         this.dungeon = dungeon;
+        this.dungeonTypeId = dungeon.getDungeonTypeId();
+        this.dungeonGeneration = Dungeon.getGeneration();
         this.difficulty = difficulty;
         this.maxSpawnCount = maxSpawnCount;
+        this.roomKey = roomKey;
+        this.spawnTemplate = null;
         this.setEntityId(type);
     }
 
     public void setEntityId(EntityType<?> type) {
         this.spawnEntry.getNbt().putString("id", Registries.ENTITY_TYPE.getId(type).toString());
         this.entityTypeId = Registries.ENTITY_TYPE.getRawId(type);
+        this.spawnTemplate = null;
     }
 
     public int getEntityId() {
         return this.entityTypeId;
     }
 
+    public int getRequiredPlayerRange() {
+        return this.requiredPlayerRange;
+    }
+
+    public boolean isPlayerInRange() {
+        return this.playerInRange;
+    }
+
+    public void setPlayerInRange(boolean playerInRange) {
+        this.playerInRange = playerInRange;
+    }
+
     public abstract void sendStatus(World var1, BlockPos var2, int var3);
 
     public double randomParticleValueOne() {
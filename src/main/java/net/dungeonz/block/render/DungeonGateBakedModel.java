@@ -0,0 +1,79 @@
+package net.dungeonz.block.render;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.dungeonz.block.DungeonGateBlock;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.fabricmc.fabric.api.renderer.v1.RendererAccess;
+import net.fabricmc.fabric.api.renderer.v1.material.BlendMode;
+import net.fabricmc.fabric.api.renderer.v1.material.RenderMaterial;
+import net.fabricmc.fabric.api.renderer.v1.model.FabricBakedModel;
+import net.fabricmc.fabric.api.renderer.v1.model.ForwardingBakedModel;
+import net.fabricmc.fabric.api.renderer.v1.render.RenderContext;
+import net.fabricmc.fabric.api.rendering.data.v1.RenderAttachedBlockView;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.RenderLayers;
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.render.model.BakedQuad;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.random.Random;
+import net.minecraft.world.BlockRenderView;
+
+// Puts the disguise block of a gate into the chunk mesh, so gate walls cost nothing per frame
+@Environment(EnvType.CLIENT)
+public class DungeonGateBakedModel extends ForwardingBakedModel {
+
+    private static final RenderMaterial[] MATERIALS = new RenderMaterial[BlendMode.values().length];
+
+    public DungeonGateBakedModel(BakedModel wrapped) {
+        this.wrapped = wrapped;
+    }
+
+    @Override
+    public boolean isVanillaAdapter() {
+        return false;
+    }
+
+    @Override
+    public void emitBlockQuads(BlockRenderView blockView, BlockState state, BlockPos pos, Supplier<Random> randomSupplier, RenderContext context) {
+        if (!state.get(DungeonGateBlock.ENABLED)) {
+            return;
+        }
+        if (((RenderAttachedBlockView) blockView).getBlockEntityRenderAttachment(pos) instanceof BlockState disguiseState && !disguiseState.isAir()) {
+            BakedModel disguiseModel = MinecraftClient.getInstance().getBlockRenderManager().getModel(disguiseState);
+            // Default material quads would take the render layer of the gate, translucent and cutout disguises need their own
+            RenderMaterial material = getMaterial(BlendMode.fromRenderLayer(RenderLayers.getBlockLayer(disguiseState)));
+            if (material != null) {
+                context.pushTransform(quad -> {
+                    quad.material(material);
+                    return true;
+                });
+            }
+            ((FabricBakedModel) disguiseModel).emitBlockQuads(blockView, disguiseState, pos, randomSupplier, context);
+            if (material != null) {
+                context.popTransform();
+            }
+        }
+    }
+
+    @Nullable
+    private static RenderMaterial getMaterial(BlendMode blendMode) {
+        if (MATERIALS[blendMode.ordinal()] == null && RendererAccess.INSTANCE.hasRenderer()) {
+            MATERIALS[blendMode.ordinal()] = RendererAccess.INSTANCE.getRenderer().materialFinder().blendMode(blendMode).find();
+        }
+        return MATERIALS[blendMode.ordinal()];
+    }
+
+    // Without a renderer the gate stays invisible in the chunk mesh and DungeonGateRenderer draws it
+    @Override
+    public List<BakedQuad> getQuads(@Nullable BlockState blockState, @Nullable Direction face, Random random) {
+        return List.of();
+    }
+
+}
@@ -4,6 +4,7 @@ import net.dungeonz.block.DungeonGateBlock;
 import net.dungeonz.block.entity.DungeonGateEntity;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
+import net.fabricmc.fabric.api.renderer.v1.RendererAccess;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.render.OverlayTexture;
 import net.minecraft.client.render.RenderLayer;
@@ -31,6 +32,10 @@ public class DungeonGateRenderer<T extends DungeonGateEntity> implements BlockEn
         if (world == null) {
             return;
         }
+        // The chunk mesh already contains the disguise through DungeonGateBakedModel
+        if (RendererAccess.INSTANCE.hasRenderer()) {
+            return;
+        }
         if (gateBlockEntity.getCachedState().get(DungeonGateBlock.ENABLED)) {
             BlockState state = gateBlockEntity.getBlockState();
             RenderLayer renderLayer = RenderLayers.getBlockLayer(state);
@@ -1,8 +1,15 @@
 package net.dungeonz.block.render;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.joml.Matrix4f;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.dungeonz.block.entity.DungeonPortalEntity;
+import net.dungeonz.init.BlockInit;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.client.render.RenderLayer;
@@ -11,33 +18,143 @@ import net.minecraft.client.render.VertexConsumerProvider;
 import net.minecraft.client.render.block.entity.BlockEntityRenderer;
 import net.minecraft.client.render.block.entity.BlockEntityRendererFactory;
 import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
 
+// Connected portal blocks are drawn as one cluster by the first visible member each frame, faces between two portal blocks are skipped
 @Environment(EnvType.CLIENT)
 public class DungeonPortalRenderer<T extends DungeonPortalEntity> implements BlockEntityRenderer<T> {
 
+    private static final int MAX_CLUSTER_SIZE = 4096;
+    private static int frame = 0;
+
+    private final Long2ObjectOpenHashMap<PortalCluster> clusters = new Long2ObjectOpenHashMap<PortalCluster>();
+    private World clusterWorld = null;
+    private int clusterVersion = -1;
+
+    private static class PortalCluster {
+        private final BlockPos rootPos;
+        // Offsets to the root and the face direction of every visible face
+        private final int[] faces;
+        private int renderedFrame = -1;
+
+        private PortalCluster(BlockPos rootPos, int[] faces) {
+            this.rootPos = rootPos;
+            this.faces = faces;
+        }
+    }
+
     public DungeonPortalRenderer(BlockEntityRendererFactory.Context ctx) {
     }
 
     @Override
     public void render(T portalBlockEntity, float f, MatrixStack matrixStack, VertexConsumerProvider vertexConsumerProvider, int i, int j) {
+        World world = portalBlockEntity.getWorld();
+        if (world == null) {
+            return;
+        }
+        if (this.clusterWorld != world || this.clusterVersion != DungeonPortalEntity.getClientPortalVersion()) {
+            this.clusters.clear();
+            this.clusterWorld = world;
+            this.clusterVersion = DungeonPortalEntity.getClientPortalVersion();
+        }
+        PortalCluster cluster = this.clusters.get(portalBlockEntity.getPos().asLong());
+        if (cluster == null) {
+            cluster = this.createCluster(world, portalBlockEntity.getPos());
+        }
+        // The root may be out of render distance or culled, so whichever member comes first draws the cluster
+        if (cluster.renderedFrame == frame) {
+            return;
+        }
+        cluster.renderedFrame = frame;
+        BlockPos pos = portalBlockEntity.getPos();
+        matrixStack.push();
+        matrixStack.translate(cluster.rootPos.getX() - pos.getX(), cluster.rootPos.getY() - pos.getY(), cluster.rootPos.getZ() - pos.getZ());
         Matrix4f matrix4f = matrixStack.peek().getPositionMatrix();
-        this.renderSides(portalBlockEntity, matrix4f, vertexConsumerProvider.getBuffer(RenderLayer.getEndPortal()));
+        VertexConsumer vertexConsumer = vertexConsumerProvider.getBuffer(RenderLayer.getEndPortal());
+        for (int u = 0; u < cluster.faces.length; u += 4) {
+            this.renderSide(matrix4f, vertexConsumer, cluster.faces[u], cluster.faces[u + 1], cluster.faces[u + 2], Direction.byId(cluster.faces[u + 3]));
+        }
+        matrixStack.pop();
+    }
+
+    public static void nextFrame() {
+        frame++;
+    }
+
+    private PortalCluster createCluster(World world, BlockPos pos) {
+        List<BlockPos> members = new ArrayList<BlockPos>();
+        LongOpenHashSet visited = new LongOpenHashSet();
+        ArrayDeque<BlockPos> queue = new ArrayDeque<BlockPos>();
+        visited.add(pos.asLong());
+        queue.add(pos);
+        while (!queue.isEmpty() && members.size() < MAX_CLUSTER_SIZE) {
+            BlockPos checkPos = queue.poll();
+            members.add(checkPos);
+            for (Direction direction : Direction.values()) {
+                BlockPos offsetPos = checkPos.offset(direction);
+                if (visited.add(offsetPos.asLong()) && world.getBlockState(offsetPos).isOf(BlockInit.DUNGEON_PORTAL)) {
+                    queue.add(offsetPos);
+                }
+            }
+        }
+        List<Integer> faces = new ArrayList<Integer>();
+        for (BlockPos member : members) {
+            for (Direction direction : Direction.values()) {
+                if (!world.getBlockState(member.offset(direction)).isOf(BlockInit.DUNGEON_PORTAL)) {
+                    faces.add(member.getX() - pos.getX());
+                    faces.add(member.getY() - pos.getY());
+                    faces.add(member.getZ() - pos.getZ());
+                    faces.add(direction.getId());
+                }
+            }
+        }
+        int[] faceArray = new int[faces.size()];
+        for (int i = 0; i < faces.size(); i++) {
+            faceArray[i] = faces.get(i);
+        }
+        PortalCluster cluster = new PortalCluster(pos, faceArray);
+        for (BlockPos member : members) {
+            this.clusters.put(member.asLong(), cluster);
+        }
+        return cluster;
     }
 
-    private void renderSides(T entity, Matrix4f matrix4f, VertexConsumer vertexConsumer) {
-        this.renderSide(entity, matrix4f, vertexConsumer, 0.0F, 1.0F, 0.0F, 1.0F, 1.0F, 1.0F, 1.0F, 1.0F, Direction.SOUTH);
-        this.renderSide(entity, matrix4f, vertexConsumer, 0.0F, 1.0F, 1.0F, 0.0F, 0.0F, 0.0F, 0.0F, 0.0F, Direction.NORTH);
-        this.renderSide(entity, matrix4f, vertexConsumer, 1.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F, 0.0F, Direction.EAST);
-        this.renderSide(entity, matrix4f, vertexConsumer, 0.0F, 0.0F, 0.0F, 1.0F, 0.0F, 1.0F, 1.0F, 0.0F, Direction.WEST);
-        this.renderSide(entity, matrix4f, vertexConsumer, 0.0F, 1.0F, 0.0F, 0.0F, 0.0F, 0.0F, 1.0F, 1.0F, Direction.DOWN);
-        this.renderSide(entity, matrix4f, vertexConsumer, 0.0F, 1.0F, 1.0F, 1.0F, 1.0F, 1.0F, 0.0F, 0.0F, Direction.UP);
+    private void renderSide(Matrix4f model, VertexConsumer vertices, int x, int y, int z, Direction direction) {
+        switch (direction) {
+        case SOUTH:
+            this.renderSide(model, vertices, x + 0.0F, x + 1.0F, y + 0.0F, y + 1.0F, z + 1.0F, z + 1.0F, z + 1.0F, z + 1.0F);
+            break;
+        case NORTH:
+            this.renderSide(model, vertices, x + 0.0F, x + 1.0F, y + 1.0F, y + 0.0F, z + 0.0F, z + 0.0F, z + 0.0F, z + 0.0F);
+            break;
+        case EAST:
+            this.renderSide(model, vertices, x + 1.0F, x + 1.0F, y + 1.0F, y + 0.0F, z + 0.0F, z + 1.0F, z + 1.0F, z + 0.0F);
+            break;
+        case WEST:
+            this.renderSide(model, vertices, x + 0.0F, x + 0.0F, y + 0.0F, y + 1.0F, z + 0.0F, z + 1.0F, z + 1.0F, z + 0.0F);
+            break;
+        case DOWN:
+            this.renderSide(model, vertices, x + 0.0F, x + 1.0F, y + 0.0F, y + 0.0F, z + 0.0F, z + 0.0F, z + 1.0F, z + 1.0F);
+            break;
+        case UP:
+            this.renderSide(model, vertices, x + 0.0F, x + 1.0F, y + 1.0F, y + 1.0F, z + 1.0F, z + 1.0F, z + 0.0F, z + 0.0F);
+            break;
+        }
     }
 
-    private void renderSide(T entity, Matrix4f model, VertexConsumer vertices, float x1, float x2, float y1, float y2, float z1, float z2, float z3, float z4, Direction direction) {
+    private void renderSide(Matrix4f model, VertexConsumer vertices, float x1, float x2, float y1, float y2, float z1, float z2, float z3, float z4) {
         vertices.vertex(model, x1, y1, z1).next();
         vertices.vertex(model, x2, y1, z2).next();
         vertices.vertex(model, x2, y2, z3).next();
         vertices.vertex(model, x1, y2, z4).next();
     }
+
+    // A member draws the whole cluster, so it must not get culled with its own block
+    @Override
+    public boolean rendersOutsideBoundingBox(T portalBlockEntity) {
+        return true;
+    }
+
 }
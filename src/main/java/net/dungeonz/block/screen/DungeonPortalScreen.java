@@ -41,6 +41,7 @@ public class DungeonPortalScreen extends HandledScreen<DungeonPortalScreenHandle
     private DungeonSliderButton effectButton;
     private DungeonSliderButton privateButton;
     private final PlayerEntity playerEntity;
+    private boolean joinRequested = false;
 
     public DungeonPortalScreen(DungeonPortalScreenHandler handler, PlayerInventory inventory, Text title) {
         super(handler, inventory, title);
@@ -65,6 +66,7 @@ public class DungeonPortalScreen extends HandledScreen<DungeonPortalScreenHandle
             if (button.active) {
                 DungeonClientPacket.writeC2SDungeonTeleportPacket(this.client, this.handler.getPos(), this.playerEntity.getUuid());
                 this.handler.setWaitingGroupSize(this.handler.getWaitingGroupSize() + 1);
+                this.joinRequested = true;
                 button.active = false;
             }
         }));
@@ -87,6 +89,12 @@ public class DungeonPortalScreen extends HandledScreen<DungeonPortalScreenHandle
             }
         }));
 
+        this.updateScreenState();
+    }
+
+    // Called on init and whenever the server pushes a portal state delta
+    public void updateScreenState() {
+        boolean playerIsInDungeonWorld = playerEntity.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD;
         this.effectButton.enabled = !this.handler.getDungeonPortalEntity().getDisableEffects();
         this.privateButton.enabled = this.handler.getDungeonPortalEntity().getPrivateGroup();
         if (playerIsInDungeonWorld) {
@@ -121,13 +129,15 @@ public class DungeonPortalScreen extends HandledScreen<DungeonPortalScreenHandle
                     this.dungeonButton.active = false;
                 }
             }
+            if (this.joinRequested) {
+                this.dungeonButton.active = false;
+            }
         }
         if (this.handler.getDifficulties().contains(this.handler.getDungeonPortalEntity().getDifficulty())) {
             this.difficultyButton.setText(Text.translatable("dungeonz.difficulty." + this.handler.getDungeonPortalEntity().getDifficulty()));
         } else {
             this.difficultyButton.setText(Text.translatable("dungeonz.difficulty." + this.handler.getDifficulties().get(0)));
         }
-
     }
 
     private Text getPlayerName(UUID playerId, int length, int substringLength) {
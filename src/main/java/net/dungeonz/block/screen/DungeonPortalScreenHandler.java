@@ -9,7 +9,9 @@ import java.util.UUID;
 import org.jetbrains.annotations.Nullable;
 
 import net.dungeonz.block.entity.DungeonPortalEntity;
+import net.dungeonz.dungeon.DungeonInstance;
 import net.dungeonz.init.BlockInit;
+import net.dungeonz.network.DungeonServerPacket;
 import net.dungeonz.util.DungeonHelper;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.entity.player.PlayerInventory;
@@ -17,15 +19,25 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.screen.ScreenHandler;
 import net.minecraft.screen.ScreenHandlerContext;
+import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
 public class DungeonPortalScreenHandler extends ScreenHandler {
 
+    public static final int DELTA_PLAYERS = 1;
+    public static final int DELTA_DEAD_PLAYERS = 2;
+    public static final int DELTA_WAITING = 4;
+    public static final int DELTA_COOLDOWN = 8;
+    public static final int DELTA_DIFFICULTY = 16;
+    public static final int DELTA_TOGGLES = 32;
+    public static final int DELTA_GROUP_SIZE = 64;
+
     private final World world;
     private final ScreenHandlerContext context;
     private final DungeonPortalEntity dungeonPortalEntity;
+    private final PlayerEntity player;
     private BlockPos pos;
 
     private List<String> difficulties = new ArrayList<String>();
@@ -33,6 +45,18 @@ public class DungeonPortalScreenHandler extends ScreenHandler {
     private List<ItemStack> requiredItemStacks = new ArrayList<ItemStack>();
     private int waitingGroupSize = 0;
 
+    // Server side state last sent to the viewer, changes get pushed as versioned deltas
+    private int screenVersion = 0;
+    private List<UUID> syncedDungeonPlayerUuids;
+    private List<UUID> syncedDeadDungeonPlayerUuids;
+    private int syncedWaitingGroupSize;
+    private int syncedCooldownTime;
+    private String syncedDifficulty;
+    private boolean syncedDisableEffects;
+    private boolean syncedPrivateGroup;
+    private int syncedMaxGroupSize;
+    private int syncedMinGroupSize;
+
     public DungeonPortalScreenHandler(int syncId, PlayerInventory playerInventory, PacketByteBuf buf) {
         this(syncId, playerInventory, new DungeonPortalEntity(buf.readBlockPos(), playerInventory.player.getWorld().getBlockState(buf.readBlockPos())), ScreenHandlerContext.EMPTY);
         this.pos = buf.readBlockPos();
@@ -101,6 +125,7 @@ public class DungeonPortalScreenHandler extends ScreenHandler {
         super(BlockInit.PORTAL, syncId);
         this.context = context;
         this.world = playerInventory.player.getWorld();
+        this.player = playerInventory.player;
         this.dungeonPortalEntity = dungeonPortalEntity;
         this.pos = dungeonPortalEntity.getPos();
 
@@ -108,7 +133,97 @@ public class DungeonPortalScreenHandler extends ScreenHandler {
             setDifficulties(this.dungeonPortalEntity.getDungeon().getDifficultyList());
             setRequiredItemStacks(DungeonHelper.getRequiredItemStackList(this.dungeonPortalEntity.getDungeon()));
             setPossibleLootItemStacks(DungeonHelper.getPossibleLootItemStackMap(this.dungeonPortalEntity.getDungeon(), this.world.getServer()));
+
+            // Same state as written by the screen opening data
+            DungeonInstance viewInstance = this.dungeonPortalEntity.getViewInstance((ServerPlayerEntity) playerInventory.player);
+            this.syncedDungeonPlayerUuids = new ArrayList<UUID>(viewInstance.getDungeonPlayerUuids());
+            this.syncedDeadDungeonPlayerUuids = new ArrayList<UUID>(viewInstance.getDeadDungeonPlayerUUIDs());
+            this.syncedWaitingGroupSize = this.dungeonPortalEntity.getWaitingUuids().size();
+            this.syncedCooldownTime = viewInstance.getCooldownTime();
+            this.syncedDifficulty = this.dungeonPortalEntity.getDifficulty();
+            this.syncedDisableEffects = this.dungeonPortalEntity.getDisableEffects();
+            this.syncedPrivateGroup = this.dungeonPortalEntity.getPrivateGroup();
+            this.syncedMaxGroupSize = this.dungeonPortalEntity.getMaxGroupSize();
+            this.syncedMinGroupSize = this.dungeonPortalEntity.getMinGroupSize();
+        }
+    }
+
+    // Called every tick for the open screen of each viewer
+    @Override
+    public void sendContentUpdates() {
+        super.sendContentUpdates();
+        if (this.syncedDungeonPlayerUuids == null || !(this.player instanceof ServerPlayerEntity)) {
+            return;
+        }
+        // Resolved again every tick since the instance the viewer would join changes with joins, leaves and cooldowns
+        DungeonInstance viewInstance = this.dungeonPortalEntity.getViewInstance((ServerPlayerEntity) this.player);
+        int changes = 0;
+        List<UUID> joinedUuids = List.of();
+        List<UUID> leftUuids = List.of();
+        if (!this.syncedDungeonPlayerUuids.equals(viewInstance.getDungeonPlayerUuids())) {
+            joinedUuids = getAddedUuids(this.syncedDungeonPlayerUuids, viewInstance.getDungeonPlayerUuids());
+            leftUuids = getAddedUuids(viewInstance.getDungeonPlayerUuids(), this.syncedDungeonPlayerUuids);
+            if (!joinedUuids.isEmpty() || !leftUuids.isEmpty()) {
+                changes |= DELTA_PLAYERS;
+            }
+            this.syncedDungeonPlayerUuids = new ArrayList<UUID>(viewInstance.getDungeonPlayerUuids());
+        }
+        List<UUID> diedUuids = List.of();
+        List<UUID> revivedUuids = List.of();
+        if (!this.syncedDeadDungeonPlayerUuids.equals(viewInstance.getDeadDungeonPlayerUUIDs())) {
+            diedUuids = getAddedUuids(this.syncedDeadDungeonPlayerUuids, viewInstance.getDeadDungeonPlayerUUIDs());
+            revivedUuids = getAddedUuids(viewInstance.getDeadDungeonPlayerUUIDs(), this.syncedDeadDungeonPlayerUuids);
+            if (!diedUuids.isEmpty() || !revivedUuids.isEmpty()) {
+                changes |= DELTA_DEAD_PLAYERS;
+            }
+            this.syncedDeadDungeonPlayerUuids = new ArrayList<UUID>(viewInstance.getDeadDungeonPlayerUUIDs());
+        }
+        if (this.syncedWaitingGroupSize != this.dungeonPortalEntity.getWaitingUuids().size()) {
+            changes |= DELTA_WAITING;
+            this.syncedWaitingGroupSize = this.dungeonPortalEntity.getWaitingUuids().size();
+        }
+        if (this.syncedCooldownTime != viewInstance.getCooldownTime()) {
+            changes |= DELTA_COOLDOWN;
+            this.syncedCooldownTime = viewInstance.getCooldownTime();
+        }
+        if (!this.syncedDifficulty.equals(this.dungeonPortalEntity.getDifficulty())) {
+            changes |= DELTA_DIFFICULTY;
+            this.syncedDifficulty = this.dungeonPortalEntity.getDifficulty();
+        }
+        if (this.syncedDisableEffects != this.dungeonPortalEntity.getDisableEffects() || this.syncedPrivateGroup != this.dungeonPortalEntity.getPrivateGroup()) {
+            changes |= DELTA_TOGGLES;
+            this.syncedDisableEffects = this.dungeonPortalEntity.getDisableEffects();
+            this.syncedPrivateGroup = this.dungeonPortalEntity.getPrivateGroup();
+        }
+        if (this.syncedMaxGroupSize != this.dungeonPortalEntity.getMaxGroupSize() || this.syncedMinGroupSize != this.dungeonPortalEntity.getMinGroupSize()) {
+            changes |= DELTA_GROUP_SIZE;
+            this.syncedMaxGroupSize = this.dungeonPortalEntity.getMaxGroupSize();
+            this.syncedMinGroupSize = this.dungeonPortalEntity.getMinGroupSize();
+        }
+        if (changes != 0) {
+            DungeonServerPacket.writeS2CSyncScreenPacket((ServerPlayerEntity) this.player, this.syncId, ++this.screenVersion, changes, joinedUuids, leftUuids, diedUuids, revivedUuids,
+                    this.syncedWaitingGroupSize, this.syncedCooldownTime, this.syncedDifficulty, this.syncedDisableEffects, this.syncedPrivateGroup, this.syncedMaxGroupSize,
+                    this.syncedMinGroupSize);
+        }
+    }
+
+    private static List<UUID> getAddedUuids(List<UUID> oldUuids, List<UUID> newUuids) {
+        List<UUID> addedUuids = new ArrayList<UUID>();
+        for (int i = 0; i < newUuids.size(); i++) {
+            if (!oldUuids.contains(newUuids.get(i))) {
+                addedUuids.add(newUuids.get(i));
+            }
+        }
+        return addedUuids;
+    }
+
+    // Client side, deltas older than the applied one are dropped
+    public boolean applyScreenVersion(int screenVersion) {
+        if (screenVersion <= this.screenVersion) {
+            return false;
         }
+        this.screenVersion = screenVersion;
+        return true;
     }
 
     @Override
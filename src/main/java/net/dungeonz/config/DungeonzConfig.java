@@ -11,5 +11,18 @@ public class DungeonzConfig implements ConfigData {
     public boolean defaultDungeons = true;
     @Comment("Crops won't grow")
     public boolean devMode = false;
+    @Comment("Milliseconds per server tick spent on dungeon generation tasks")
+    public int taskTickBudget = 10;
+    @Comment("Concurrent dungeon runs per portal")
+    public int maxDungeonInstances = 4;
+    @Comment("Generated and refreshed instances made ready when a portal which had a run gets opened")
+    public int warmDungeonInstances = 0;
+    @Comment("Background tasks pause above this average tick time in ms")
+    public int backgroundTaskMaxMspt = 40;
+    @Comment("Spawn the mobs of a room once a player comes close")
+    public boolean lazyMobPopulation = false;
+    public int mobPopulationRadius = 24;
+    @Comment("Despawn untouched room mobs again when players walk away")
+    public boolean rebankUntouchedRooms = false;
 
 }
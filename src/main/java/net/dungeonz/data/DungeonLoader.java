@@ -17,6 +17,10 @@ import org.jetbrains.annotations.Nullable;
 
 import net.dungeonz.DungeonzMain;
 import net.dungeonz.dungeon.Dungeon;
+import net.dungeonz.dungeon.DungeonLootPreview;
+import net.dungeonz.dungeon.DungeonMarkerScanner;
+import net.dungeonz.dungeon.DungeonSpawnTemplate;
+import net.dungeonz.dungeon.DungeonTemplateIndex;
 import net.dungeonz.init.ConfigInit;
 import net.fabricmc.fabric.api.resource.SimpleSynchronousResourceReloadListener;
 import net.minecraft.entity.EntityType;
@@ -35,6 +39,11 @@ public class DungeonLoader implements SimpleSynchronousResourceReloadListener {
 
     @Override
     public void reload(ResourceManager manager) {
+        DungeonTemplateIndex.clear();
+        DungeonMarkerScanner.clear();
+        DungeonLootPreview.clear();
+        DungeonSpawnTemplate.clear();
+        List<Dungeon> dungeons = new ArrayList<Dungeon>();
         manager.findResources("dungeon", id -> id.getPath().endsWith(".json")).forEach((id, resourceRef) -> {
             try {
                 InputStream stream = resourceRef.getInputStream();
@@ -204,13 +213,14 @@ public class DungeonLoader implements SimpleSynchronousResourceReloadListener {
                     return;
                 }
 
-                Dungeon.addDungeon(new Dungeon(dungeonTypeId, blockIdEntityMap, blockIdEntitySpawnChance, blockIdBlockReplacement, spawnerEntityIdCountMap, requiredItemCountMap, breakableBlockIds,
+                dungeons.add(new Dungeon(dungeonTypeId, blockIdEntityMap, blockIdEntitySpawnChance, blockIdBlockReplacement, spawnerEntityIdCountMap, requiredItemCountMap, breakableBlockIds,
                         placeableBlockIds, difficultyMobModificator, difficultyLootTableIds, difficultyBossModificator, difficultyBossLootTable, bossEntityType, bossNbtCompound, bossBlockId,
                         bossLootBlockId, exitBlockId, allowElytra, maxGroupSize, minGroupSize, cooldown, dungeonBackgroundId, dungeonStructurePoolId));
             } catch (Exception e) {
                 DungeonzMain.LOGGER.error("Error occurred while loading resource {}. {}", id.toString(), e.toString());
             }
         });
+        Dungeon.setDungeons(dungeons);
     }
 
     @Nullable
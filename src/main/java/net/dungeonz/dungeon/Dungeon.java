@@ -1,18 +1,27 @@
 package net.dungeonz.dungeon;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jetbrains.annotations.Nullable;
 
 import net.dungeonz.DungeonzMain;
+import net.minecraft.block.Block;
 import net.minecraft.entity.EntityType;
 import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.Registries;
 import net.minecraft.util.Identifier;
 
 public class Dungeon {
 
+    private static volatile Map<String, Dungeon> DUNGEON_MAP = Map.of();
+    private static volatile int generation = 0;
+
     private final String dungeonTypeId;
 
     private final HashMap<Integer, List<EntityType<?>>> blockIdEntityMap;
@@ -25,6 +34,9 @@ public class Dungeon {
 
     private final List<Integer> breakableBlockIds;
     private final List<Integer> placeableBlockIds;
+    // Raw block ids, checked on every break attempt and block item use
+    private final BitSet breakableBlocks;
+    private final BitSet placeableBlocks;
 
     private final HashMap<String, Float> difficultyMobModificator;
     private final HashMap<String, List<String>> difficultyLootTableIds;
@@ -61,6 +73,8 @@ public class Dungeon {
         this.requiredItemCountMap = requiredItemCountMap;
         this.breakableBlockIds = breakableBlockIds;
         this.placeableBlockIds = placeableBlockIds;
+        this.breakableBlocks = createBlockSet(breakableBlockIds);
+        this.placeableBlocks = createBlockSet(placeableBlockIds);
         this.difficultyMobModificator = difficultyMobModificator;
         this.difficultyLootTableIds = difficultyLootTableIds;
         this.difficultyBossModificator = difficultyBossModificator;
@@ -78,6 +92,16 @@ public class Dungeon {
         this.dungeonStructurePoolId = dungeonStructurePoolId;
     }
 
+    private static BitSet createBlockSet(List<Integer> blockIds) {
+        BitSet blockSet = new BitSet();
+        for (int i = 0; i < blockIds.size(); i++) {
+            if (blockIds.get(i) >= 0) {
+                blockSet.set(blockIds.get(i));
+            }
+        }
+        return blockSet;
+    }
+
     public String getDungeonTypeId() {
         return this.dungeonTypeId;
     }
@@ -138,6 +162,22 @@ public class Dungeon {
         return this.placeableBlockIds;
     }
 
+    public BitSet getBreakableBlocks() {
+        return this.breakableBlocks;
+    }
+
+    public BitSet getPlaceableBlocks() {
+        return this.placeableBlocks;
+    }
+
+    public boolean isBreakable(Block block) {
+        return this.breakableBlocks.get(Registries.BLOCK.getRawId(block));
+    }
+
+    public boolean isPlaceable(Block block) {
+        return this.placeableBlocks.get(Registries.BLOCK.getRawId(block));
+    }
+
     public EntityType<?> getBossEntityType() {
         return this.bossEntityType;
     }
@@ -182,20 +222,37 @@ public class Dungeon {
         return false;
     }
 
-    public static void addDungeon(Dungeon dungeon) {
-        if (!DungeonzMain.DUNGEONS.contains(dungeon)) {
-            DungeonzMain.DUNGEONS.add(dungeon);
+    public static synchronized void addDungeon(Dungeon dungeon) {
+        if (!DUNGEON_MAP.containsKey(dungeon.getDungeonTypeId())) {
+            LinkedHashMap<String, Dungeon> dungeonMap = new LinkedHashMap<String, Dungeon>(DUNGEON_MAP);
+            dungeonMap.put(dungeon.getDungeonTypeId(), dungeon);
+            swapDungeons(dungeonMap);
+        }
+    }
+
+    // Swaps in a complete snapshot so lookups never see a half loaded registry, the first dungeon of a type wins
+    public static synchronized void setDungeons(List<Dungeon> dungeons) {
+        LinkedHashMap<String, Dungeon> dungeonMap = new LinkedHashMap<String, Dungeon>();
+        for (int i = 0; i < dungeons.size(); i++) {
+            dungeonMap.putIfAbsent(dungeons.get(i).getDungeonTypeId(), dungeons.get(i));
         }
+        swapDungeons(dungeonMap);
+    }
+
+    private static void swapDungeons(LinkedHashMap<String, Dungeon> dungeonMap) {
+        DUNGEON_MAP = Collections.unmodifiableMap(dungeonMap);
+        DungeonzMain.DUNGEONS = List.copyOf(dungeonMap.values());
+        generation++;
     }
 
     @Nullable
     public static Dungeon getDungeon(String dungeonTypeId) {
-        for (int i = 0; i < DungeonzMain.DUNGEONS.size(); i++) {
-            if (DungeonzMain.DUNGEONS.get(i).getDungeonTypeId().equals(dungeonTypeId)) {
-                return DungeonzMain.DUNGEONS.get(i);
-            }
-        }
-        return null;
+        return DUNGEON_MAP.get(dungeonTypeId);
+    }
+
+    // Increased on every reload, cached dungeon references are stale once it changed
+    public static int getGeneration() {
+        return generation;
     }
 
 }
@@ -0,0 +1,68 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.BlockState;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.WorldChunk;
+
+// Collects refresh block writes and applies them per chunk section without neighbor updates
+public class DungeonBlockRestorer {
+
+    private final ServerWorld world;
+    private final Long2ObjectOpenHashMap<BlockState> pendingStates = new Long2ObjectOpenHashMap<BlockState>();
+    private final List<Runnable> afterFlushActions = new ArrayList<Runnable>();
+
+    public DungeonBlockRestorer(ServerWorld world) {
+        this.world = world;
+    }
+
+    public void setBlockState(BlockPos pos, BlockState state) {
+        this.pendingStates.put(pos.asLong(), state);
+    }
+
+    // Runs once the pending states are written, e.g. to set up a block entity
+    public void afterFlush(Runnable action) {
+        this.afterFlushActions.add(action);
+    }
+
+    public void flush() {
+        if (!this.pendingStates.isEmpty()) {
+            Long2ObjectOpenHashMap<LongArrayList> sectionPosMap = new Long2ObjectOpenHashMap<LongArrayList>();
+            for (long pos : this.pendingStates.keySet()) {
+                long sectionPos = ChunkSectionPos.fromBlockPos(pos);
+                if (!sectionPosMap.containsKey(sectionPos)) {
+                    sectionPosMap.put(sectionPos, new LongArrayList());
+                }
+                sectionPosMap.get(sectionPos).add(pos);
+            }
+            BlockPos.Mutable blockPos = new BlockPos.Mutable();
+            for (Long2ObjectMap.Entry<LongArrayList> entry : sectionPosMap.long2ObjectEntrySet()) {
+                WorldChunk chunk = this.world.getChunk(ChunkSectionPos.unpackX(entry.getLongKey()), ChunkSectionPos.unpackZ(entry.getLongKey()));
+                LongArrayList positions = entry.getValue();
+                for (int i = 0; i < positions.size(); i++) {
+                    blockPos.set(positions.getLong(i));
+                    BlockState state = this.pendingStates.get(positions.getLong(i));
+                    // Lighting gets queued by the chunk itself, the chunk holder batches the client updates into delta packets per section
+                    BlockState oldState = chunk.setBlockState(blockPos, state, false);
+                    if (oldState != null) {
+                        this.world.getChunkManager().markForUpdate(blockPos);
+                        this.world.onBlockChanged(blockPos, oldState, state);
+                    }
+                }
+            }
+            this.pendingStates.clear();
+        }
+        for (int i = 0; i < this.afterFlushActions.size(); i++) {
+            this.afterFlushActions.get(i).run();
+        }
+        this.afterFlushActions.clear();
+    }
+
+}
@@ -0,0 +1,179 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.dungeonz.access.DungeonMobAccess;
+import net.dungeonz.block.entity.DungeonGateEntity;
+import net.dungeonz.init.DimensionInit;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.mob.HostileEntity;
+import net.minecraft.entity.mob.MobEntity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+
+// Live hostile counts per dungeon room, updated by entity load and unload events instead of box scans
+// A room is keyed by the min corner of its piece bounding box
+public class DungeonEntityTracker {
+
+    // Outside of the world border, so no room box can start there
+    public static final long NO_ROOM = Long.MIN_VALUE;
+
+    private static final Long2IntOpenHashMap HOSTILE_COUNTS = new Long2IntOpenHashMap();
+    // Mobs which are planned or banked by lazy population but not spawned yet
+    private static final Long2IntOpenHashMap PENDING_COUNTS = new Long2IntOpenHashMap();
+    // Gates don't tick, they get notified once their room gets cleared or occupied
+    private static final Long2ObjectOpenHashMap<List<DungeonGateEntity>> GATE_LISTENERS = new Long2ObjectOpenHashMap<List<DungeonGateEntity>>();
+    // Rooms changed this tick with their cleared state before the first change, unload events may fire while chunks get saved
+    private static final Long2BooleanOpenHashMap CHANGED_ROOMS = new Long2BooleanOpenHashMap();
+    // Mobs unloaded with their chunk still count for their room until they die
+    private static final Set<UUID> UNLOADED_MOBS = new HashSet<UUID>();
+    // New subscribers get the current state of their room once its mobs are loaded, a room which is already cleared never changes again
+    private static final List<DungeonGateEntity> NEW_GATES = new ArrayList<DungeonGateEntity>();
+
+    public static long getRoomKey(int minX, int minY, int minZ) {
+        return BlockPos.asLong(minX, minY, minZ);
+    }
+
+    public static long getRoomKey(Box box) {
+        return getRoomKey((int) box.minX, (int) box.minY, (int) box.minZ);
+    }
+
+    // Has to be called before the mob gets spawned
+    public static void track(MobEntity mobEntity, long roomKey) {
+        ((DungeonMobAccess) mobEntity).setDungeonRoomKey(roomKey);
+    }
+
+    public static void onEntityLoad(Entity entity, ServerWorld world) {
+        if (world.getRegistryKey() == DimensionInit.DUNGEON_WORLD && entity instanceof HostileEntity) {
+            long roomKey = ((DungeonMobAccess) entity).getDungeonRoomKey();
+            if (roomKey != NO_ROOM && !UNLOADED_MOBS.remove(entity.getUuid())) {
+                boolean cleared = isRoomCleared(roomKey);
+                HOSTILE_COUNTS.addTo(roomKey, 1);
+                notifyGates(roomKey, cleared);
+            }
+        }
+    }
+
+    public static void onEntityUnload(Entity entity, ServerWorld world) {
+        if (world.getRegistryKey() == DimensionInit.DUNGEON_WORLD && entity instanceof HostileEntity) {
+            long roomKey = ((DungeonMobAccess) entity).getDungeonRoomKey();
+            if (roomKey == NO_ROOM || !HOSTILE_COUNTS.containsKey(roomKey)) {
+                return;
+            }
+            if (entity.getRemovalReason() == Entity.RemovalReason.UNLOADED_TO_CHUNK) {
+                UNLOADED_MOBS.add(entity.getUuid());
+            } else {
+                boolean cleared = isRoomCleared(roomKey);
+                if (HOSTILE_COUNTS.addTo(roomKey, -1) <= 1) {
+                    HOSTILE_COUNTS.remove(roomKey);
+                }
+                notifyGates(roomKey, cleared);
+            }
+        }
+    }
+
+    public static void setPendingCount(long roomKey, int count) {
+        boolean cleared = isRoomCleared(roomKey);
+        if (count > 0) {
+            PENDING_COUNTS.put(roomKey, count);
+        } else {
+            PENDING_COUNTS.remove(roomKey);
+        }
+        notifyGates(roomKey, cleared);
+    }
+
+    public static void subscribe(long roomKey, DungeonGateEntity gateEntity) {
+        List<DungeonGateEntity> gates = GATE_LISTENERS.get(roomKey);
+        if (gates == null) {
+            gates = new ArrayList<DungeonGateEntity>();
+            GATE_LISTENERS.put(roomKey, gates);
+        }
+        if (!gates.contains(gateEntity)) {
+            gates.add(gateEntity);
+            NEW_GATES.add(gateEntity);
+        }
+    }
+
+    public static void unsubscribe(long roomKey, DungeonGateEntity gateEntity) {
+        List<DungeonGateEntity> gates = GATE_LISTENERS.get(roomKey);
+        if (gates != null) {
+            gates.remove(gateEntity);
+            if (gates.isEmpty()) {
+                GATE_LISTENERS.remove(roomKey);
+            }
+        }
+    }
+
+    private static void notifyGates(long roomKey, boolean wasCleared) {
+        if (GATE_LISTENERS.containsKey(roomKey) && !CHANGED_ROOMS.containsKey(roomKey)) {
+            CHANGED_ROOMS.put(roomKey, wasCleared);
+        }
+    }
+
+    public static void tick(MinecraftServer server) {
+        if (!NEW_GATES.isEmpty()) {
+            // Copied since unlocking may add or remove gate block entities
+            List<DungeonGateEntity> gates = new ArrayList<DungeonGateEntity>(NEW_GATES);
+            NEW_GATES.clear();
+            for (int i = 0; i < gates.size(); i++) {
+                DungeonGateEntity gateEntity = gates.get(i);
+                long roomKey = gateEntity.getSubscribedRoomKey();
+                if (gateEntity.isRemoved() || roomKey == NO_ROOM) {
+                    continue;
+                }
+                if (gateEntity.isRoomLoaded()) {
+                    gateEntity.onRoomChanged(isRoomCleared(roomKey));
+                } else {
+                    NEW_GATES.add(gateEntity);
+                }
+            }
+        }
+        if (CHANGED_ROOMS.isEmpty()) {
+            return;
+        }
+        long[] roomKeys = CHANGED_ROOMS.keySet().toLongArray();
+        boolean[] wasCleared = new boolean[roomKeys.length];
+        for (int i = 0; i < roomKeys.length; i++) {
+            wasCleared[i] = CHANGED_ROOMS.get(roomKeys[i]);
+        }
+        CHANGED_ROOMS.clear();
+        for (int i = 0; i < roomKeys.length; i++) {
+            boolean cleared = isRoomCleared(roomKeys[i]);
+            if (cleared == wasCleared[i] || !GATE_LISTENERS.containsKey(roomKeys[i])) {
+                continue;
+            }
+            // Copied since unlocking may add or remove gate block entities
+            List<DungeonGateEntity> gates = new ArrayList<DungeonGateEntity>(GATE_LISTENERS.get(roomKeys[i]));
+            for (int u = 0; u < gates.size(); u++) {
+                gates.get(u).onRoomChanged(cleared);
+            }
+        }
+    }
+
+    public static int getHostileCount(long roomKey) {
+        return HOSTILE_COUNTS.get(roomKey);
+    }
+
+    public static boolean isRoomCleared(long roomKey) {
+        return !HOSTILE_COUNTS.containsKey(roomKey) && !PENDING_COUNTS.containsKey(roomKey);
+    }
+
+    public static void clear() {
+        HOSTILE_COUNTS.clear();
+        PENDING_COUNTS.clear();
+        GATE_LISTENERS.clear();
+        CHANGED_ROOMS.clear();
+        UNLOADED_MOBS.clear();
+        NEW_GATES.clear();
+    }
+
+}
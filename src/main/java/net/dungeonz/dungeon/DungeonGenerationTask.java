@@ -0,0 +1,174 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import net.dungeonz.DungeonzMain;
+import net.dungeonz.block.entity.DungeonGateEntity;
+import net.dungeonz.block.entity.DungeonPortalEntity;
+import net.dungeonz.util.DungeonHelper;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.structure.PoolStructurePiece;
+import net.minecraft.structure.StructurePiece;
+import net.minecraft.structure.pool.StructurePool;
+import net.minecraft.structure.pool.StructurePoolBasedGenerator;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.gen.chunk.ChunkGenerator;
+import net.minecraft.world.gen.structure.Structure;
+
+public class DungeonGenerationTask implements DungeonTask {
+
+    // Waiting players who walked further away from the portal are not teleported anymore
+    private static final double MAX_WAITING_DISTANCE = 64.0D;
+
+    private final ServerWorld world;
+    private final DungeonPortalEntity portalEntity;
+    private final DungeonInstance instance;
+    private final Dungeon dungeon;
+    private final BlockPos pos;
+    private final CompletableFuture<List<PoolStructurePiece>> layoutFuture;
+    private final DungeonMarkers markers = new DungeonMarkers();
+    private final List<UUID> waitingUuids = new ArrayList<UUID>();
+    private final long portalTicketId;
+
+    private List<PoolStructurePiece> pieces = null;
+    private int pieceIndex = 0;
+
+    public DungeonGenerationTask(ServerWorld world, DungeonPortalEntity portalEntity, DungeonInstance instance, Dungeon dungeon, BlockPos pos) {
+        this.world = world;
+        this.portalEntity = portalEntity;
+        this.instance = instance;
+        this.dungeon = dungeon;
+        this.pos = pos;
+
+        // has to be the template_pool name
+        RegistryEntry<StructurePool> structurePool = world.getRegistryManager().get(RegistryKeys.TEMPLATE_POOL)
+                .entryOf(RegistryKey.of(RegistryKeys.TEMPLATE_POOL, dungeon.getStructurePoolId()));
+        ChunkGenerator chunkGenerator = world.getChunkManager().getChunkGenerator();
+        Structure.Context context = new Structure.Context(world.getRegistryManager(), chunkGenerator, chunkGenerator.getBiomeSource(), world.getChunkManager().getNoiseConfig(),
+                world.getStructureTemplateManager(), world.getSeed(), new ChunkPos(pos), world, registryEntry -> true);
+        this.layoutFuture = CompletableFuture.supplyAsync(() -> planLayout(context, structurePool, pos), Util.getMainWorkerExecutor());
+        this.portalTicketId = DungeonTaskScheduler.addPortalTicket((ServerWorld) portalEntity.getWorld(), portalEntity.getPos());
+    }
+
+    // Runs off-thread: jigsaw assembly only reads templates and does not touch the world
+    private static List<PoolStructurePiece> planLayout(Structure.Context context, RegistryEntry<StructurePool> structurePool, BlockPos pos) {
+        List<PoolStructurePiece> pieces = new ArrayList<PoolStructurePiece>();
+        // has to be the first jigsaw block to generate of
+        Optional<Structure.StructurePosition> optional = StructurePoolBasedGenerator.generate(context, structurePool, Optional.of(new Identifier("dungeonz:spawn")), 64, pos, false,
+                Optional.empty(), 512);
+        if (optional.isPresent()) {
+            for (StructurePiece structurePiece : optional.get().generate().toList().pieces()) {
+                if (structurePiece instanceof PoolStructurePiece) {
+                    pieces.add((PoolStructurePiece) structurePiece);
+                }
+            }
+        }
+        return List.copyOf(pieces);
+    }
+
+    @Override
+    public boolean tick(MinecraftServer server, long deadline) {
+        // Only happens if the portal got broken, its chunk is held by a ticket
+        if (this.portalEntity.isRemoved()) {
+            this.instance.setGenerationTask(null);
+            this.sendWaitingMessage(server, Text.translatable("text.dungeonz.dungeon_missing"));
+            return true;
+        }
+        if (this.pieces == null) {
+            if (!this.layoutFuture.isDone()) {
+                return false;
+            }
+            try {
+                this.pieces = this.layoutFuture.join();
+            } catch (CompletionException exception) {
+                DungeonzMain.LOGGER.error("Failed to plan dungeon layout of {}", this.dungeon.getDungeonTypeId(), exception);
+                this.pieces = List.of();
+            }
+            if (this.pieces.isEmpty()) {
+                this.instance.setGenerationTask(null);
+                this.sendWaitingMessage(server, Text.translatable("text.dungeonz.dungeon_missing"));
+                return true;
+            }
+        }
+        while (this.pieceIndex < this.pieces.size()) {
+            PoolStructurePiece poolStructurePiece = this.pieces.get(this.pieceIndex++);
+            poolStructurePiece.generate(this.world, this.world.getStructureAccessor(), this.world.getChunkManager().getChunkGenerator(), this.world.getRandom(), BlockBox.infinite(),
+                    this.pos, false);
+            DungeonPlacementHandler.collectMarkers(this.world, this.dungeon, poolStructurePiece, this.markers);
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+        }
+        this.markers.apply(this.instance);
+        DungeonGateEntity.updateGroups(this.world, this.instance.getGatePosList());
+        this.instance.setDungeonStructureGenerated();
+        this.instance.setGenerationTask(null);
+        this.portalEntity.markDirty();
+
+        // The instance may have changed while generating, so the join checks run again
+        for (int i = 0; i < this.waitingUuids.size(); i++) {
+            ServerPlayerEntity playerEntity = server.getPlayerManager().getPlayer(this.waitingUuids.get(i));
+            if (playerEntity == null || playerEntity.getServerWorld() != this.portalEntity.getWorld()
+                    || playerEntity.squaredDistanceTo(Vec3d.ofCenter(this.portalEntity.getPos())) > MAX_WAITING_DISTANCE * MAX_WAITING_DISTANCE) {
+                continue;
+            }
+            String joinError = DungeonHelper.getJoinError(playerEntity, this.portalEntity, this.instance, (int) this.world.getTime());
+            if (joinError != null) {
+                playerEntity.sendMessage(Text.translatable(joinError), false);
+            } else {
+                DungeonHelper.teleportPlayer(playerEntity, this.world, this.portalEntity, this.instance);
+            }
+        }
+        return true;
+    }
+
+    private void sendWaitingMessage(MinecraftServer server, Text message) {
+        for (int i = 0; i < this.waitingUuids.size(); i++) {
+            ServerPlayerEntity playerEntity = server.getPlayerManager().getPlayer(this.waitingUuids.get(i));
+            if (playerEntity != null) {
+                playerEntity.sendMessage(message, false);
+            }
+        }
+    }
+
+    @Override
+    public void onRemoved() {
+        DungeonTaskScheduler.removePortalTicket((ServerWorld) this.portalEntity.getWorld(), this.portalEntity.getPos(), this.portalTicketId);
+    }
+
+    @Override
+    public boolean isBackground() {
+        return this.waitingUuids.isEmpty();
+    }
+
+    public void addWaitingUuid(UUID uuid) {
+        if (!this.waitingUuids.contains(uuid)) {
+            this.waitingUuids.add(uuid);
+        }
+    }
+
+    public boolean isWaiting(UUID uuid) {
+        return this.waitingUuids.contains(uuid);
+    }
+
+    public int getWaitingCount() {
+        return this.waitingUuids.size();
+    }
+
+}
@@ -0,0 +1,441 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.dungeonz.util.DungeonNbtHelper;
+import net.minecraft.block.Block;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.math.BlockPos;
+
+public class DungeonInstance {
+
+    private final int index;
+    private final BlockPos origin;
+    private String difficulty = "";
+    private boolean disableEffects = false;
+    private boolean privateGroup = false;
+    private boolean dungeonStructureGenerated = false;
+    private boolean prepared = false;
+    private String preparedDifficulty = "";
+    private boolean preparedLuck = false;
+    private List<UUID> dungeonPlayerUuids = new ArrayList<UUID>();
+    private List<UUID> deadDungeonPlayerUuids = new ArrayList<UUID>();
+    private int cooldownTime = 0;
+    private int autoKickTime = 0;
+    private HashMap<Integer, ArrayList<BlockPos>> blockBlockPosMap = new HashMap<Integer, ArrayList<BlockPos>>();
+    private List<BlockPos> chestPosList = new ArrayList<BlockPos>();
+    private List<BlockPos> exitPosList = new ArrayList<BlockPos>();
+    private List<BlockPos> gatePosList = new ArrayList<BlockPos>();
+    private BlockPos bossBlockPos = new BlockPos(0, 0, 0);
+    private BlockPos bossLootBlockPos = new BlockPos(0, 0, 0);
+    private HashMap<BlockPos, Integer> spawnerPosEntityIdMap = new HashMap<BlockPos, Integer>();
+    private HashMap<BlockPos, Integer> replacePosBlockIdMap = new HashMap<BlockPos, Integer>();
+    private List<Integer> dungeonEdgeList = new ArrayList<Integer>();
+    private List<DungeonRoom> rooms = new ArrayList<DungeonRoom>();
+    @Nullable
+    private DungeonGenerationTask generationTask = null;
+    @Nullable
+    private DungeonRefreshTask refreshTask = null;
+
+    public DungeonInstance(int index, BlockPos origin) {
+        this.index = index;
+        this.origin = origin;
+    }
+
+    public static DungeonInstance fromNbt(NbtCompound nbt) {
+        DungeonInstance instance = new DungeonInstance(nbt.getInt("Index"), BlockPos.fromLong(nbt.getLong("Origin")));
+        instance.readNbt(nbt);
+        return instance;
+    }
+
+    public NbtCompound toNbt() {
+        NbtCompound nbt = new NbtCompound();
+        nbt.putInt("Index", this.index);
+        nbt.putLong("Origin", this.origin.asLong());
+        this.writeNbt(nbt);
+        return nbt;
+    }
+
+    public void readNbt(NbtCompound nbt) {
+        this.difficulty = nbt.getString("Difficulty");
+        this.disableEffects = nbt.getBoolean("DisableEffects");
+        this.privateGroup = nbt.getBoolean("PrivateGroup");
+        this.dungeonStructureGenerated = nbt.getBoolean("DungeonStructureGenerated");
+        this.prepared = nbt.getBoolean("Prepared");
+        this.preparedDifficulty = nbt.getString("PreparedDifficulty");
+        this.preparedLuck = nbt.getBoolean("PreparedLuck");
+        this.cooldownTime = nbt.getInt("CooldownTime");
+        this.autoKickTime = nbt.getInt("AutoKickTime");
+        this.dungeonPlayerUuids = DungeonNbtHelper.getUuidList(nbt, "PlayerUuids");
+        this.deadDungeonPlayerUuids = DungeonNbtHelper.getUuidList(nbt, "DeadPlayerUuids");
+        this.blockBlockPosMap = DungeonNbtHelper.getIdBlockPosListMap(nbt, "Block");
+        this.bossBlockPos = BlockPos.fromLong(nbt.getLong("BossPos"));
+        this.bossLootBlockPos = BlockPos.fromLong(nbt.getLong("BossLootPos"));
+        this.chestPosList = DungeonNbtHelper.getBlockPosList(nbt, "ChestPositions");
+        this.exitPosList = DungeonNbtHelper.getBlockPosList(nbt, "ExitPositions");
+        this.gatePosList = DungeonNbtHelper.getBlockPosList(nbt, "GatePositions");
+        this.spawnerPosEntityIdMap = DungeonNbtHelper.getBlockPosIdMap(nbt, "SpawnerPositions", "SpawnerEntityIds");
+        this.replacePosBlockIdMap = DungeonNbtHelper.getBlockPosIdMap(nbt, "ReplacePositions", "ReplaceBlockIds");
+        this.dungeonEdgeList = DungeonNbtHelper.getIntList(nbt, "DungeonEdges");
+        this.rooms.clear();
+        NbtList roomList = nbt.getList("Rooms", NbtElement.COMPOUND_TYPE);
+        for (int i = 0; i < roomList.size(); i++) {
+            this.rooms.add(DungeonRoom.fromNbt(roomList.getCompound(i), this.getRoomKey(i)));
+        }
+    }
+
+    // Portals saved before the compact layout stored every value under its own key
+    public void readLegacyNbt(NbtCompound nbt) {
+        this.difficulty = nbt.getString("Difficulty");
+        this.disableEffects = nbt.getBoolean("DisableEffects");
+        this.privateGroup = nbt.getBoolean("PrivateGroup");
+        this.dungeonStructureGenerated = nbt.getBoolean("DungeonStructureGenerated");
+        this.cooldownTime = nbt.getInt("CooldownTime");
+        this.autoKickTime = nbt.getInt("AutoKickTime");
+        this.dungeonPlayerUuids.clear();
+        for (int i = 0; i < nbt.getInt("DungeonPlayerCount"); i++) {
+            this.dungeonPlayerUuids.add(nbt.getUuid("PlayerUUID" + i));
+        }
+        this.deadDungeonPlayerUuids.clear();
+        for (int i = 0; i < nbt.getInt("DeadDungeonPlayerCount"); i++) {
+            this.deadDungeonPlayerUuids.add(nbt.getUuid("DeadPlayerUUID" + i));
+        }
+        this.blockBlockPosMap.clear();
+        if (nbt.getInt("BlockMapSize") > 0) {
+            for (int i = 0; i < nbt.getInt("BlockMapSize"); i++) {
+                ArrayList<BlockPos> posList = new ArrayList<>();
+                // The legacy format only kept the last position of each block id, the lost markers need a new generation
+                if (nbt.getInt("BlockListSize" + i) > 1) {
+                    this.dungeonStructureGenerated = false;
+                }
+                if (nbt.getInt("BlockListSize" + i) > 0) {
+                    posList.add(new BlockPos(nbt.getInt("BlockPosX" + i), nbt.getInt("BlockPosY" + i), nbt.getInt("BlockPosZ" + i)));
+                }
+                this.blockBlockPosMap.put(nbt.getInt("BlockId" + i), posList);
+            }
+        }
+
+        this.bossBlockPos = new BlockPos(nbt.getInt("BossPosX"), nbt.getInt("BossPosY"), nbt.getInt("BossPosZ"));
+        this.bossLootBlockPos = new BlockPos(nbt.getInt("BossLootPosX"), nbt.getInt("BossLootPosY"), nbt.getInt("BossLootPosZ"));
+
+        if (nbt.getInt("ChestListSize") > 0) {
+            this.chestPosList.clear();
+            for (int i = 0; i < nbt.getInt("ChestListSize"); i++) {
+                this.chestPosList.add(new BlockPos(nbt.getInt("ChestPosX" + i), nbt.getInt("ChestPosY" + i), nbt.getInt("ChestPosZ" + i)));
+            }
+        }
+
+        if (nbt.getInt("ExitListSize") > 0) {
+            this.exitPosList.clear();
+            for (int i = 0; i < nbt.getInt("ExitListSize"); i++) {
+                this.exitPosList.add(new BlockPos(nbt.getInt("ExitPosX" + i), nbt.getInt("ExitPosY" + i), nbt.getInt("ExitPosZ" + i)));
+            }
+        }
+
+        if (nbt.getInt("SpawnerMapSize") > 0) {
+            this.spawnerPosEntityIdMap.clear();
+            for (int i = 0; i < nbt.getInt("SpawnerMapSize"); i++) {
+                this.spawnerPosEntityIdMap.put(new BlockPos(nbt.getInt("SpawnerPosX" + i), nbt.getInt("SpawnerPosY" + i), nbt.getInt("SpawnerPosZ" + i)), nbt.getInt("SpawnerEntityId" + i));
+            }
+        }
+
+        if (nbt.getInt("ReplacePosSize") > 0) {
+            this.replacePosBlockIdMap.clear();
+            for (int i = 0; i < nbt.getInt("ReplacePosSize"); i++) {
+                this.replacePosBlockIdMap.put(new BlockPos(nbt.getInt("ReplacePosX" + i), nbt.getInt("ReplacePosY" + i), nbt.getInt("ReplacePosZ" + i)), nbt.getInt("ReplaceBlockId" + i));
+            }
+        }
+
+        if (nbt.getInt("DungeonEdgeSize") > 0) {
+            this.dungeonEdgeList.clear();
+            for (int i = 0; i < nbt.getInt("DungeonEdgeSize") / 3; i++) {
+                this.dungeonEdgeList.add(nbt.getInt("DungeonEdgeX" + i));
+                this.dungeonEdgeList.add(nbt.getInt("DungeonEdgeY" + i));
+                this.dungeonEdgeList.add(nbt.getInt("DungeonEdgeZ" + i));
+            }
+        }
+
+        if (nbt.getInt("GateListSize") > 0) {
+            this.gatePosList.clear();
+            for (int i = 0; i < nbt.getInt("GateListSize"); i++) {
+                this.gatePosList.add(new BlockPos(nbt.getInt("GatePosX" + i), nbt.getInt("GatePosY" + i), nbt.getInt("GatePosZ" + i)));
+            }
+        }
+    }
+
+    public void writeNbt(NbtCompound nbt) {
+        nbt.putString("Difficulty", this.difficulty);
+        nbt.putBoolean("DisableEffects", this.disableEffects);
+        nbt.putBoolean("PrivateGroup", this.privateGroup);
+        nbt.putBoolean("DungeonStructureGenerated", this.dungeonStructureGenerated);
+        nbt.putBoolean("Prepared", this.prepared);
+        nbt.putString("PreparedDifficulty", this.preparedDifficulty);
+        nbt.putBoolean("PreparedLuck", this.preparedLuck);
+        nbt.putInt("CooldownTime", this.cooldownTime);
+        nbt.putInt("AutoKickTime", this.autoKickTime);
+        DungeonNbtHelper.putUuidList(nbt, "PlayerUuids", this.dungeonPlayerUuids);
+        DungeonNbtHelper.putUuidList(nbt, "DeadPlayerUuids", this.deadDungeonPlayerUuids);
+        DungeonNbtHelper.putIdBlockPosListMap(nbt, "Block", this.blockBlockPosMap);
+        nbt.putLong("BossPos", this.bossBlockPos.asLong());
+        nbt.putLong("BossLootPos", this.bossLootBlockPos.asLong());
+        DungeonNbtHelper.putBlockPosList(nbt, "ChestPositions", this.chestPosList);
+        DungeonNbtHelper.putBlockPosList(nbt, "ExitPositions", this.exitPosList);
+        DungeonNbtHelper.putBlockPosList(nbt, "GatePositions", this.gatePosList);
+        DungeonNbtHelper.putBlockPosIdMap(nbt, "SpawnerPositions", "SpawnerEntityIds", this.spawnerPosEntityIdMap);
+        DungeonNbtHelper.putBlockPosIdMap(nbt, "ReplacePositions", "ReplaceBlockIds", this.replacePosBlockIdMap);
+        DungeonNbtHelper.putIntList(nbt, "DungeonEdges", this.dungeonEdgeList);
+        if (!this.rooms.isEmpty()) {
+            NbtList roomList = new NbtList();
+            for (int i = 0; i < this.rooms.size(); i++) {
+                roomList.add(this.rooms.get(i).toNbt());
+            }
+            nbt.put("Rooms", roomList);
+        }
+    }
+
+    // Copies the portal settings a group picked before entering a free instance
+    public void applySettings(String difficulty, boolean disableEffects, boolean privateGroup) {
+        this.difficulty = difficulty;
+        this.disableEffects = disableEffects;
+        this.privateGroup = privateGroup;
+    }
+
+    // Reserved for players waiting on the generation, background generation keeps the instance free
+    public boolean isReserved() {
+        return this.generationTask != null && this.generationTask.getWaitingCount() > 0;
+    }
+
+    public boolean isWarming() {
+        return (this.generationTask != null && this.generationTask.isBackground()) || (this.refreshTask != null && this.refreshTask.isBackground());
+    }
+
+    public boolean isFree(int currentTime) {
+        return this.dungeonPlayerUuids.isEmpty() && !this.isReserved() && !this.isOnCooldown(currentTime);
+    }
+
+    public int getIndex() {
+        return this.index;
+    }
+
+    // Previews stand in for an instance which is not allocated yet
+    public boolean isPreview() {
+        return this.index < 0;
+    }
+
+    public BlockPos getOrigin() {
+        return this.origin;
+    }
+
+    public String getDifficulty() {
+        return this.difficulty;
+    }
+
+    public boolean getDisableEffects() {
+        return this.disableEffects;
+    }
+
+    public boolean getPrivateGroup() {
+        return this.privateGroup;
+    }
+
+    public void setDungeonStructureGenerated() {
+        this.dungeonStructureGenerated = true;
+    }
+
+    public boolean isDungeonStructureGenerated() {
+        return this.dungeonStructureGenerated;
+    }
+
+    // Set once a refresh ran without players so the first group can skip it
+    public void setPrepared(String difficulty, boolean luck) {
+        this.prepared = true;
+        this.preparedDifficulty = difficulty;
+        this.preparedLuck = luck;
+    }
+
+    public void clearPrepared() {
+        this.prepared = false;
+        this.preparedDifficulty = "";
+        this.preparedLuck = false;
+    }
+
+    public boolean isPreparedFor(String difficulty, boolean luck) {
+        return this.prepared && this.preparedDifficulty.equals(difficulty) && this.preparedLuck == luck;
+    }
+
+    public void setRefreshTask(@Nullable DungeonRefreshTask refreshTask) {
+        this.refreshTask = refreshTask;
+    }
+
+    @Nullable
+    public DungeonRefreshTask getRefreshTask() {
+        return this.refreshTask;
+    }
+
+    public void setGenerationTask(@Nullable DungeonGenerationTask generationTask) {
+        this.generationTask = generationTask;
+    }
+
+    @Nullable
+    public DungeonGenerationTask getGenerationTask() {
+        return this.generationTask;
+    }
+
+    public void joinDungeon(UUID playerUuid) {
+        if (!this.dungeonPlayerUuids.contains(playerUuid)) {
+            this.dungeonPlayerUuids.add(playerUuid);
+        }
+    }
+
+    public void leaveDungeon(UUID playerUuid) {
+        this.dungeonPlayerUuids.remove(playerUuid);
+    }
+
+    public int getDungeonPlayerCount() {
+        return this.dungeonPlayerUuids.size();
+    }
+
+    public void setDungeonPlayerUuids(List<UUID> dungeonPlayerUuids) {
+        this.dungeonPlayerUuids = dungeonPlayerUuids;
+    }
+
+    public List<UUID> getDungeonPlayerUuids() {
+        return this.dungeonPlayerUuids;
+    }
+
+    public void addDeadDungeonPlayerUuids(UUID deadDungeonPlayerUuids) {
+        this.deadDungeonPlayerUuids.add(deadDungeonPlayerUuids);
+    }
+
+    public void setDeadDungeonPlayerUuids(List<UUID> deadDungeonPlayerUuids) {
+        this.deadDungeonPlayerUuids = deadDungeonPlayerUuids;
+    }
+
+    public List<UUID> getDeadDungeonPlayerUUIDs() {
+        return this.deadDungeonPlayerUuids;
+    }
+
+    public void setCooldownTime(int cooldownTime) {
+        this.cooldownTime = cooldownTime;
+    }
+
+    public int getCooldownTime() {
+        return this.cooldownTime;
+    }
+
+    public boolean isOnCooldown(int currentTime) {
+        if (this.cooldownTime <= currentTime) {
+            return false;
+        }
+        return true;
+    }
+
+    public void setAutoKickTime(int autoKickTime) {
+        this.autoKickTime = autoKickTime;
+    }
+
+    public int getAutoKickTime() {
+        return this.autoKickTime;
+    }
+
+    // Might lead to issues if using "="
+    public void setBlockMap(HashMap<Integer, ArrayList<BlockPos>> map) {
+        this.blockBlockPosMap = map;
+    }
+
+    public HashMap<Integer, ArrayList<BlockPos>> getBlockMap() {
+        return this.blockBlockPosMap;
+    }
+
+    public void setBossBlockPos(BlockPos pos) {
+        this.bossBlockPos = pos;
+    }
+
+    public BlockPos getBossBlockPos() {
+        return this.bossBlockPos;
+    }
+
+    public void setBossLootBlockPos(BlockPos pos) {
+        this.bossLootBlockPos = pos;
+    }
+
+    public BlockPos getBossLootBlockPos() {
+        return this.bossLootBlockPos;
+    }
+
+    public void setChestPosList(List<BlockPos> chestPosList) {
+        this.chestPosList = chestPosList;
+    }
+
+    public List<BlockPos> getChestPosList() {
+        return this.chestPosList;
+    }
+
+    public void setGatePosList(List<BlockPos> gatePosList) {
+        this.gatePosList = gatePosList;
+    }
+
+    public List<BlockPos> getGatePosList() {
+        return this.gatePosList;
+    }
+
+    public void setExitPosList(List<BlockPos> exitPosList) {
+        this.exitPosList = exitPosList;
+    }
+
+    public List<BlockPos> getExitPosList() {
+        return this.exitPosList;
+    }
+
+    public void setDungeonEdgeList(List<Integer> dungeonEdgeList) {
+        this.dungeonEdgeList = dungeonEdgeList;
+    }
+
+    public List<Integer> getDungeonEdgeList() {
+        return this.dungeonEdgeList;
+    }
+
+    public void setRooms(List<DungeonRoom> rooms) {
+        for (int i = 0; i < this.rooms.size(); i++) {
+            this.rooms.get(i).release();
+        }
+        this.rooms = rooms;
+    }
+
+    // Rooms are aligned with the piece boxes of the edge list
+    public long getRoomKey(int index) {
+        if (5 + 6 * index >= this.dungeonEdgeList.size()) {
+            return DungeonEntityTracker.NO_ROOM;
+        }
+        return DungeonEntityTracker.getRoomKey(this.dungeonEdgeList.get(6 * index), this.dungeonEdgeList.get(1 + 6 * index), this.dungeonEdgeList.get(2 + 6 * index));
+    }
+
+    public List<DungeonRoom> getRooms() {
+        return this.rooms;
+    }
+
+    public void setSpawnerPosEntityIdMap(HashMap<BlockPos, Integer> spawnerPosEntityIdMap) {
+        this.spawnerPosEntityIdMap = spawnerPosEntityIdMap;
+    }
+
+    public HashMap<BlockPos, Integer> getSpawnerPosEntityIdMap() {
+        return this.spawnerPosEntityIdMap;
+    }
+
+    public void addReplaceBlockId(BlockPos pos, Block block) {
+        this.replacePosBlockIdMap.put(pos, Registries.BLOCK.getRawId(block));
+    }
+
+    public HashMap<BlockPos, Integer> getReplaceBlockIdMap() {
+        return this.replacePosBlockIdMap;
+    }
+
+}
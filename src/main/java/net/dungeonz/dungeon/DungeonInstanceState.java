@@ -0,0 +1,39 @@
+package net.dungeonz.dungeon;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.PersistentState;
+
+// Hands out origins for additional dungeon instances, far away from the portal based origins at portalPos * 16
+public class DungeonInstanceState extends PersistentState {
+
+    private static final int SLOT_START = 20000000;
+    private static final int SLOT_SPACING = 2048;
+    private static final int SLOTS_PER_ROW = 4096;
+
+    private int nextSlot = 0;
+
+    public static DungeonInstanceState get(ServerWorld dungeonWorld) {
+        return dungeonWorld.getPersistentStateManager().getOrCreate(DungeonInstanceState::fromNbt, DungeonInstanceState::new, "dungeonz_instances");
+    }
+
+    private static DungeonInstanceState fromNbt(NbtCompound nbt) {
+        DungeonInstanceState state = new DungeonInstanceState();
+        state.nextSlot = nbt.getInt("NextSlot");
+        return state;
+    }
+
+    @Override
+    public NbtCompound writeNbt(NbtCompound nbt) {
+        nbt.putInt("NextSlot", this.nextSlot);
+        return nbt;
+    }
+
+    public BlockPos allocateOrigin() {
+        int slot = this.nextSlot++;
+        this.markDirty();
+        return new BlockPos(SLOT_START + (slot % SLOTS_PER_ROW) * SLOT_SPACING, 100, SLOT_START + (slot / SLOTS_PER_ROW) * SLOT_SPACING);
+    }
+
+}
@@ -0,0 +1,72 @@
+package net.dungeonz.dungeon;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.dungeonz.DungeonzMain;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.structure.Structure;
+
+// Searches dungeon structures on a dedicated thread, one search per dungeon type and region at a time
+public class DungeonLocator {
+
+    private static final int SEARCH_RADIUS = 100;
+    // Regions of 32x32 chunks share a search
+    private static final int REGION_SHIFT = 9;
+    private static final int MISS_COOLDOWN = 6000;
+    // Searches wait on chunk loads, so they must not block the worldgen worker threads
+    private static final int MAX_SEARCHES = 4;
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DungeonZ Locator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Map<String, CompletableFuture<BlockPos>> SEARCHES = new HashMap<String, CompletableFuture<BlockPos>>();
+    private static final Map<String, Long> MISSES = new HashMap<String, Long>();
+
+    // Returns a known structure start or null while the search is still running
+    @Nullable
+    public static BlockPos locate(ServerWorld world, String dungeonType, BlockPos pos) {
+        DungeonStructureIndex index = DungeonStructureIndex.get(world);
+        BlockPos structurePos = index.getNearestStructureStart(dungeonType, pos, SEARCH_RADIUS * 16);
+        if (structurePos != null) {
+            return structurePos;
+        }
+        String key = world.getRegistryKey().getValue() + "|" + dungeonType + "|" + (pos.getX() >> REGION_SHIFT) + "|" + (pos.getZ() >> REGION_SHIFT);
+        if (SEARCHES.size() >= MAX_SEARCHES || SEARCHES.containsKey(key) || (MISSES.containsKey(key) && MISSES.get(key) > world.getTime())) {
+            return null;
+        }
+        // Chunk loads of the search still get handed to the main thread by the chunk manager
+        TagKey<Structure> structureTag = TagKey.of(RegistryKeys.STRUCTURE, new Identifier("dungeonz", dungeonType));
+        CompletableFuture<BlockPos> search = CompletableFuture.supplyAsync(() -> world.locateStructure(structureTag, pos, SEARCH_RADIUS, false), SEARCH_EXECUTOR);
+        SEARCHES.put(key, search);
+        search.whenComplete((foundPos, throwable) -> world.getServer().execute(() -> {
+            SEARCHES.remove(key);
+            if (throwable != null) {
+                DungeonzMain.LOGGER.warn("Failed to locate dungeon {}", dungeonType, throwable);
+            }
+            if (foundPos != null) {
+                index.addStructureStart(dungeonType, foundPos);
+            } else {
+                MISSES.put(key, world.getTime() + MISS_COOLDOWN);
+            }
+        }));
+        return null;
+    }
+
+    public static void clear() {
+        SEARCHES.clear();
+        MISSES.clear();
+    }
+
+}
@@ -0,0 +1,142 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.inventory.SimpleInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.loot.LootTable;
+import net.minecraft.loot.context.LootContextParameterSet;
+import net.minecraft.loot.context.LootContextParameters;
+import net.minecraft.loot.context.LootContextTypes;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.registry.Registries;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.Vec3d;
+
+// Possible boss loot and required items per dungeon, computed once per data pack reload
+public class DungeonLootPreview {
+
+    // Fixed seeds, so the preview doesn't change between portal clicks
+    private static final long[] SAMPLE_SEEDS = new long[] { 0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L };
+
+    private static final HashMap<String, Preview> PREVIEWS = new HashMap<String, Preview>();
+    private static final HashMap<String, List<ItemStack>> REQUIRED_ITEM_STACKS = new HashMap<String, List<ItemStack>>();
+
+    private static class Preview {
+        private final Map<String, List<ItemStack>> possibleLoot;
+        // Possible loot and required items as written into the portal screen opening data
+        private final byte[] screenData;
+
+        private Preview(Map<String, List<ItemStack>> possibleLoot, byte[] screenData) {
+            this.possibleLoot = possibleLoot;
+            this.screenData = screenData;
+        }
+    }
+
+    public static Map<String, List<ItemStack>> getPossibleLoot(Dungeon dungeon, MinecraftServer server) {
+        return getPreview(dungeon, server).possibleLoot;
+    }
+
+    // Shared stacks, they must not be modified
+    public static List<ItemStack> getRequiredItemStacks(Dungeon dungeon) {
+        List<ItemStack> requiredItemStacks = REQUIRED_ITEM_STACKS.get(dungeon.getDungeonTypeId());
+        if (requiredItemStacks == null) {
+            requiredItemStacks = new ArrayList<ItemStack>();
+            Iterator<Entry<Integer, Integer>> requiredItemIterator = dungeon.getRequiredItemCountMap().entrySet().iterator();
+            while (requiredItemIterator.hasNext()) {
+                Entry<Integer, Integer> entry = requiredItemIterator.next();
+                requiredItemStacks.add(new ItemStack(Registries.ITEM.get(entry.getKey()), entry.getValue()));
+            }
+            REQUIRED_ITEM_STACKS.put(dungeon.getDungeonTypeId(), requiredItemStacks);
+        }
+        return requiredItemStacks;
+    }
+
+    public static void writeScreenData(Dungeon dungeon, MinecraftServer server, PacketByteBuf buf) {
+        buf.writeBytes(getPreview(dungeon, server).screenData);
+    }
+
+    public static void clear() {
+        PREVIEWS.clear();
+        REQUIRED_ITEM_STACKS.clear();
+    }
+
+    private static Preview getPreview(Dungeon dungeon, MinecraftServer server) {
+        Preview preview = PREVIEWS.get(dungeon.getDungeonTypeId());
+        if (preview == null) {
+            preview = createPreview(dungeon, server);
+            PREVIEWS.put(dungeon.getDungeonTypeId(), preview);
+        }
+        return preview;
+    }
+
+    private static Preview createPreview(Dungeon dungeon, MinecraftServer server) {
+        Map<String, List<ItemStack>> possibleLoot = new LinkedHashMap<String, List<ItemStack>>();
+        Iterator<Entry<String, String>> lootTableIterator = dungeon.getDifficultyBossLootTableMap().entrySet().iterator();
+        while (lootTableIterator.hasNext()) {
+            Entry<String, String> entry = lootTableIterator.next();
+            possibleLoot.put(entry.getKey(), sampleLootTable(server, entry.getValue()));
+        }
+
+        List<ItemStack> requiredItemStacks = getRequiredItemStacks(dungeon);
+        PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+        buf.writeInt(possibleLoot.size());
+        Iterator<Entry<String, List<ItemStack>>> possibleLootIterator = possibleLoot.entrySet().iterator();
+        while (possibleLootIterator.hasNext()) {
+            Entry<String, List<ItemStack>> entry = possibleLootIterator.next();
+            buf.writeString(entry.getKey());
+            buf.writeInt(entry.getValue().size());
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                buf.writeItemStack(entry.getValue().get(i));
+            }
+        }
+        buf.writeInt(requiredItemStacks.size());
+        for (int i = 0; i < requiredItemStacks.size(); i++) {
+            buf.writeItemStack(requiredItemStacks.get(i));
+        }
+        byte[] screenData = new byte[buf.readableBytes()];
+        buf.readBytes(screenData);
+        buf.release();
+
+        return new Preview(possibleLoot, screenData);
+    }
+
+    // Union of the drops over all sample seeds, with the highest count an item reached in a single roll
+    private static List<ItemStack> sampleLootTable(MinecraftServer server, String lootTableId) {
+        LootTable lootTable = server.getLootManager().getLootTable(new Identifier(lootTableId));
+        LootContextParameterSet lootContextParameterSet = new LootContextParameterSet.Builder(server.getOverworld())
+                .add(LootContextParameters.ORIGIN, Vec3d.ofCenter(server.getOverworld().getSpawnPos())).build(LootContextTypes.CHEST);
+
+        LinkedHashMap<Item, ItemStack> possibleItemStacks = new LinkedHashMap<Item, ItemStack>();
+        HashMap<Item, Integer> rollCounts = new HashMap<Item, Integer>();
+        Inventory inventory = new SimpleInventory(27);
+        for (int i = 0; i < SAMPLE_SEEDS.length; i++) {
+            inventory.clear();
+            rollCounts.clear();
+            lootTable.supplyInventory(inventory, lootContextParameterSet, SAMPLE_SEEDS[i]);
+            for (int u = 0; u < inventory.size(); u++) {
+                ItemStack itemStack = inventory.getStack(u);
+                if (!itemStack.isEmpty()) {
+                    rollCounts.merge(itemStack.getItem(), itemStack.getCount(), Integer::sum);
+                    possibleItemStacks.putIfAbsent(itemStack.getItem(), itemStack.copy());
+                }
+            }
+            for (Entry<Item, Integer> entry : rollCounts.entrySet()) {
+                ItemStack itemStack = possibleItemStacks.get(entry.getKey());
+                itemStack.setCount(Math.max(itemStack.getCount(), entry.getValue()));
+            }
+        }
+        return new ArrayList<ItemStack>(possibleItemStacks.values());
+    }
+
+}
@@ -0,0 +1,140 @@
+package net.dungeonz.dungeon;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import it.unimi.dsi.fastutil.objects.Reference2BooleanOpenHashMap;
+
+import net.dungeonz.init.BlockInit;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.Registries;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.collection.PaletteStorage;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.Palette;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+
+public class DungeonMarkerScanner {
+
+    // Section palettes above this size are the global block state palette
+    private static final int MAX_LOCAL_PALETTE_SIZE = 256;
+
+    public interface MarkerVisitor {
+        void visit(long pos, BlockState state);
+    }
+
+    // Built once per dungeon, the memoized states stay valid until the next data pack reload
+    private static final Map<Dungeon, Predicate<BlockState>> MARKER_PREDICATES = new HashMap<Dungeon, Predicate<BlockState>>();
+
+    public static Predicate<BlockState> getMarkerPredicate(Dungeon dungeon) {
+        return MARKER_PREDICATES.computeIfAbsent(dungeon, DungeonMarkerScanner::createMarkerPredicate);
+    }
+
+    private static Predicate<BlockState> createMarkerPredicate(Dungeon dungeon) {
+        Block exitBlock = Registries.BLOCK.get(dungeon.getExitBlockId());
+        Block bossLootBlock = Registries.BLOCK.get(dungeon.getBossLootBlockId());
+        Reference2BooleanOpenHashMap<BlockState> markerStates = new Reference2BooleanOpenHashMap<BlockState>();
+        return state -> {
+            if (markerStates.containsKey(state)) {
+                return markerStates.getBoolean(state);
+            }
+            boolean isMarker = false;
+            if (!state.isAir()) {
+                int blockId = Registries.BLOCK.getRawId(state.getBlock());
+                isMarker = dungeon.containsBlockId(blockId) || dungeon.getBossBlockId() == blockId || state.isOf(Blocks.CHEST) || state.isOf(Blocks.BARREL) || state.isOf(exitBlock)
+                        || state.isOf(bossLootBlock) || state.isOf(BlockInit.DUNGEON_SPAWNER) || state.isOf(BlockInit.DUNGEON_GATE);
+            }
+            markerStates.put(state, isMarker);
+            return isMarker;
+        };
+    }
+
+    public static void clear() {
+        MARKER_PREDICATES.clear();
+    }
+
+    // Walks the chunk sections inside the box, tests the section palette once and only reads the packed ids of the positions
+    public static void scan(ServerWorld world, BlockBox box, Predicate<BlockState> markerPredicate, MarkerVisitor visitor) {
+        int minSectionY = Math.max(ChunkSectionPos.getSectionCoord(box.getMinY()), world.getBottomSectionCoord());
+        int maxSectionY = Math.min(ChunkSectionPos.getSectionCoord(box.getMaxY()), world.getTopSectionCoord() - 1);
+
+        for (int chunkX = ChunkSectionPos.getSectionCoord(box.getMinX()); chunkX <= ChunkSectionPos.getSectionCoord(box.getMaxX()); chunkX++) {
+            for (int chunkZ = ChunkSectionPos.getSectionCoord(box.getMinZ()); chunkZ <= ChunkSectionPos.getSectionCoord(box.getMaxZ()); chunkZ++) {
+                WorldChunk chunk = world.getChunk(chunkX, chunkZ);
+                int minX = Math.max(box.getMinX(), ChunkSectionPos.getBlockCoord(chunkX));
+                int maxX = Math.min(box.getMaxX(), ChunkSectionPos.getBlockCoord(chunkX) + 15);
+                int minZ = Math.max(box.getMinZ(), ChunkSectionPos.getBlockCoord(chunkZ));
+                int maxZ = Math.min(box.getMaxZ(), ChunkSectionPos.getBlockCoord(chunkZ) + 15);
+
+                for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                    ChunkSection section = chunk.getSection(world.sectionCoordToIndex(sectionY));
+                    if (section.isEmpty()) {
+                        continue;
+                    }
+                    int minY = Math.max(box.getMinY(), ChunkSectionPos.getBlockCoord(sectionY));
+                    int maxY = Math.min(box.getMaxY(), ChunkSectionPos.getBlockCoord(sectionY) + 15);
+                    PalettedContainer.Data<BlockState> data = section.getBlockStateContainer().data;
+                    Palette<BlockState> palette = data.palette();
+                    if (palette.getSize() > MAX_LOCAL_PALETTE_SIZE) {
+                        // Global palette, the ids are raw state ids and not worth a lookup table
+                        scanStates(section, minX, minY, minZ, maxX, maxY, maxZ, markerPredicate, visitor);
+                        continue;
+                    }
+                    BlockState[] markerStates = null;
+                    for (int id = 0; id < palette.getSize(); id++) {
+                        BlockState state = palette.get(id);
+                        if (markerPredicate.test(state)) {
+                            if (markerStates == null) {
+                                markerStates = new BlockState[palette.getSize()];
+                            }
+                            markerStates[id] = state;
+                        }
+                    }
+                    if (markerStates == null) {
+                        continue;
+                    }
+                    PaletteStorage storage = data.storage();
+                    for (int y = minY; y <= maxY; y++) {
+                        for (int z = minZ; z <= maxZ; z++) {
+                            for (int x = minX; x <= maxX; x++) {
+                                BlockState state = markerStates[storage.get(getIndex(x, y, z))];
+                                if (state != null) {
+                                    visitor.visit(BlockPos.asLong(x, y, z), state);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void scanStates(ChunkSection section, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, Predicate<BlockState> markerPredicate, MarkerVisitor visitor) {
+        if (!section.hasAny(markerPredicate)) {
+            return;
+        }
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = minX; x <= maxX; x++) {
+                    BlockState state = section.getBlockState(x & 15, y & 15, z & 15);
+                    if (markerPredicate.test(state)) {
+                        visitor.visit(BlockPos.asLong(x, y, z), state);
+                    }
+                }
+            }
+        }
+    }
+
+    // Same index order as the block state container of a chunk section
+    private static int getIndex(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+}
@@ -0,0 +1,80 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+
+public class DungeonMarkers {
+
+    private final HashMap<Integer, ArrayList<BlockPos>> blockIdPosMap = new HashMap<Integer, ArrayList<BlockPos>>();
+    private final ArrayList<BlockPos> chestPosList = new ArrayList<BlockPos>();
+    private final ArrayList<BlockPos> exitPosList = new ArrayList<BlockPos>();
+    private final ArrayList<BlockPos> gatePosList = new ArrayList<BlockPos>();
+    private final HashMap<BlockPos, Integer> spawnerPosEntityIdMap = new HashMap<BlockPos, Integer>();
+    private final List<Integer> dungeonEdgeList = new ArrayList<Integer>();
+    @Nullable
+    private BlockPos bossBlockPos = null;
+    @Nullable
+    private BlockPos bossLootBlockPos = null;
+
+    public void addDungeonEdge(BlockBox box) {
+        this.dungeonEdgeList.add(box.getMinX());
+        this.dungeonEdgeList.add(box.getMinY());
+        this.dungeonEdgeList.add(box.getMinZ());
+        this.dungeonEdgeList.add(box.getMaxX());
+        this.dungeonEdgeList.add(box.getMaxY());
+        this.dungeonEdgeList.add(box.getMaxZ());
+    }
+
+    public void addBlockPos(int blockId, BlockPos pos) {
+        if (!this.blockIdPosMap.containsKey(blockId)) {
+            this.blockIdPosMap.put(blockId, new ArrayList<BlockPos>());
+        }
+        this.blockIdPosMap.get(blockId).add(pos);
+    }
+
+    public void addChestPos(BlockPos pos) {
+        this.chestPosList.add(pos);
+    }
+
+    public void addExitPos(BlockPos pos) {
+        this.exitPosList.add(pos);
+    }
+
+    public void addGatePos(BlockPos pos) {
+        this.gatePosList.add(pos);
+    }
+
+    public void addSpawnerPos(BlockPos pos, int entityId) {
+        this.spawnerPosEntityIdMap.put(pos, entityId);
+    }
+
+    public void setBossBlockPos(BlockPos pos) {
+        this.bossBlockPos = pos;
+    }
+
+    public void setBossLootBlockPos(BlockPos pos) {
+        this.bossLootBlockPos = pos;
+    }
+
+    public void apply(DungeonInstance instance) {
+        instance.setBlockMap(this.blockIdPosMap);
+        instance.setChestPosList(this.chestPosList);
+        instance.setExitPosList(this.exitPosList);
+        instance.setGatePosList(this.gatePosList);
+        instance.setSpawnerPosEntityIdMap(this.spawnerPosEntityIdMap);
+        instance.setDungeonEdgeList(new ArrayList<Integer>(this.dungeonEdgeList));
+        if (this.bossBlockPos != null) {
+            instance.setBossBlockPos(this.bossBlockPos);
+        }
+        if (this.bossLootBlockPos != null) {
+            instance.setBossLootBlockPos(this.bossLootBlockPos);
+        }
+    }
+
+}
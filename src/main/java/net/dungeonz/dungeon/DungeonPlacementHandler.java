@@ -1,277 +1,153 @@
 package net.dungeonz.dungeon;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Optional;
-import java.util.Map.Entry;
-
 import org.jetbrains.annotations.Nullable;
 
 import net.dungeonz.DungeonzMain;
-import net.dungeonz.access.BossEntityAccess;
 import net.dungeonz.access.ServerPlayerAccess;
-import net.dungeonz.block.DungeonGateBlock;
 import net.dungeonz.block.entity.DungeonGateEntity;
 import net.dungeonz.block.entity.DungeonPortalEntity;
 import net.dungeonz.block.entity.DungeonSpawnerEntity;
 import net.dungeonz.init.BlockInit;
 import net.dungeonz.init.TagInit;
-import net.dungeonz.util.InventoryHelper;
 import net.minecraft.block.Block;
 import net.minecraft.block.Blocks;
-import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
 import net.minecraft.entity.SpawnReason;
-import net.minecraft.entity.Entity.RemovalReason;
 import net.minecraft.entity.attribute.EntityAttributes;
 import net.minecraft.entity.mob.MobEntity;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.registry.Registries;
-import net.minecraft.registry.Registry;
-import net.minecraft.registry.RegistryKey;
-import net.minecraft.registry.RegistryKeys;
-import net.minecraft.registry.entry.RegistryEntry;
-import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.structure.PoolStructurePiece;
-import net.minecraft.structure.StructurePiece;
-import net.minecraft.structure.StructurePiecesCollector;
-import net.minecraft.structure.StructureTemplateManager;
-import net.minecraft.structure.pool.StructurePool;
-import net.minecraft.structure.pool.StructurePoolBasedGenerator;
-import net.minecraft.util.Identifier;
+import net.minecraft.text.Text;
 import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Box;
-import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Vec3d;
-import net.minecraft.util.math.random.Random;
-import net.minecraft.world.StructureWorldAccess;
 import net.minecraft.world.TeleportTarget;
-import net.minecraft.world.World;
-import net.minecraft.world.gen.StructureAccessor;
-import net.minecraft.world.gen.chunk.ChunkGenerator;
-import net.minecraft.world.gen.structure.Structure;
 import net.rpgdifficulty.api.MobStrengthener;
 
 public class DungeonPlacementHandler {
 
-    public static TeleportTarget enter(ServerPlayerEntity serverPlayerEntity, ServerWorld dungeonWorld, ServerWorld oldWorld, DungeonPortalEntity portalEntity, BlockPos portalPos, String difficulty,
-            boolean disableEffects) {
-        ((ServerPlayerAccess) serverPlayerEntity).setDungeonInfo(oldWorld, portalPos, serverPlayerEntity.getBlockPos());
-        if (disableEffects) {
+    public static TeleportTarget enter(ServerPlayerEntity serverPlayerEntity, ServerWorld dungeonWorld, ServerWorld oldWorld, DungeonPortalEntity portalEntity, DungeonInstance instance) {
+        ((ServerPlayerAccess) serverPlayerEntity).setDungeonInfo(oldWorld, portalEntity.getPos(), serverPlayerEntity.getBlockPos(), instance.getIndex());
+        ((ServerPlayerAccess) serverPlayerEntity).setDungeonSession(new DungeonSession(portalEntity, instance));
+        if (instance.getDisableEffects()) {
             serverPlayerEntity.clearStatusEffects();
         }
 
-        BlockPos newPos = new BlockPos(0, 0, 0).add(portalPos.getX() * 16, 100, portalPos.getZ() * 16);
+        BlockPos newPos = instance.getOrigin();
 
-        if (!portalEntity.isDungeonStructureGenerated()) {
-            portalEntity.setDungeonStructureGenerated();
-            spawnDungeonStructure(dungeonWorld, newPos, portalEntity);
-        }
         Dungeon dungeon = portalEntity.getDungeon();
-        if (portalEntity.getDungeonPlayerCount() == 0) {
-            refreshDungeon(serverPlayerEntity.server, dungeonWorld, portalEntity, dungeon, difficulty, disableEffects);
+        if (instance.getDungeonPlayerCount() == 0) {
+            if (instance.isPreparedFor(instance.getDifficulty(), instance.getDisableEffects())) {
+                instance.setRefreshTask(null);
+                instance.getDeadDungeonPlayerUUIDs().clear();
+            } else if (instance.getRefreshTask() != null && instance.getRefreshTask().isFor(instance.getDifficulty(), instance.getDisableEffects())) {
+                instance.getRefreshTask().setForeground();
+            } else {
+                refreshDungeon(dungeonWorld, portalEntity, instance, dungeon, instance.getDifficulty(), instance.getDisableEffects(), false);
+            }
+            instance.clearPrepared();
         }
-        portalEntity.joinDungeon(serverPlayerEntity.getUuid());
+        instance.joinDungeon(serverPlayerEntity.getUuid());
+        portalEntity.markDirty();
 
         return new TeleportTarget(Vec3d.of(newPos).add(0.5, 0, 0.5), Vec3d.ZERO, 0, 0);
     }
 
     public static TeleportTarget leave(ServerPlayerEntity serverPlayerEntity, ServerWorld serverWorld) {
-        if (serverWorld.getBlockEntity(((ServerPlayerAccess) serverPlayerEntity).getDungeonPortalBlockPos()) != null) {
-            ((DungeonPortalEntity) serverWorld.getBlockEntity(((ServerPlayerAccess) serverPlayerEntity).getDungeonPortalBlockPos())).leaveDungeon(serverPlayerEntity.getUuid());
+        ((ServerPlayerAccess) serverPlayerEntity).setDungeonSession(null);
+        if (serverWorld.getBlockEntity(((ServerPlayerAccess) serverPlayerEntity).getDungeonPortalBlockPos()) instanceof DungeonPortalEntity dungeonPortalEntity) {
+            DungeonInstance instance = dungeonPortalEntity.getInstance(((ServerPlayerAccess) serverPlayerEntity).getDungeonInstanceIndex());
+            if (instance != null) {
+                instance.leaveDungeon(serverPlayerEntity.getUuid());
+                dungeonPortalEntity.markDirty();
+            }
         }
         return new TeleportTarget(Vec3d.of(((ServerPlayerAccess) serverPlayerEntity).getDungeonSpawnBlockPos()).add(0.5, 0, 0.5), Vec3d.ZERO, serverWorld.random.nextFloat() * 360F, 0);
     }
 
-    private static void spawnDungeonStructure(World world, BlockPos pos, DungeonPortalEntity portalEntity) {
-        Registry<StructurePool> registry = world.getRegistryManager().get(RegistryKeys.TEMPLATE_POOL);
-
-        // has to be the template_pool name
-        RegistryEntry<StructurePool> registryEntry = registry.entryOf(RegistryKey.of(RegistryKeys.TEMPLATE_POOL, portalEntity.getDungeon().getStructurePoolId()));
-        // has to be the first jigsaw block to generate of
-        generate((ServerWorld) world, portalEntity, portalEntity.getDungeon(), registryEntry, new Identifier("dungeonz:spawn"), 64, pos, false);
-    }
-
-    private static boolean generate(ServerWorld world, DungeonPortalEntity portalEntity, Dungeon dungeon, RegistryEntry<StructurePool> structurePool, Identifier id, int size, BlockPos pos,
-            boolean keepJigsaws) {
-        ChunkGenerator chunkGenerator = world.getChunkManager().getChunkGenerator();
-        StructureTemplateManager structureTemplateManager = world.getStructureTemplateManager();
-        StructureAccessor structureAccessor = world.getStructureAccessor();
-        Random random = world.getRandom();
-        Structure.Context context = new Structure.Context(world.getRegistryManager(), chunkGenerator, chunkGenerator.getBiomeSource(), world.getChunkManager().getNoiseConfig(),
-                structureTemplateManager, world.getSeed(), new ChunkPos(pos), world, registryEntry -> true);
-        Optional<Structure.StructurePosition> optional = StructurePoolBasedGenerator.generate(context, structurePool, Optional.of(id), size, pos, false, Optional.empty(), 512);
-        if (optional.isPresent()) {
-            HashMap<Integer, ArrayList<BlockPos>> blockIdPosMap = new HashMap<Integer, ArrayList<BlockPos>>();
-            ArrayList<BlockPos> chestPosList = new ArrayList<BlockPos>();
-            ArrayList<BlockPos> exitPosList = new ArrayList<BlockPos>();
-            ArrayList<BlockPos> gatePosList = new ArrayList<BlockPos>();
-            HashMap<BlockPos, Integer> spawnerPosEntityIdMap = new HashMap<BlockPos, Integer>();
-            Block exitBlock = Registries.BLOCK.get(dungeon.getExitBlockId());
-            Block bossLootBlock = Registries.BLOCK.get(dungeon.getBossLootBlockId());
-
-            StructurePiecesCollector structurePiecesCollector = optional.get().generate();
-            for (StructurePiece structurePiece : structurePiecesCollector.toList().pieces()) {
-                if (!(structurePiece instanceof PoolStructurePiece)) {
-                    continue;
-                }
-                PoolStructurePiece poolStructurePiece = (PoolStructurePiece) structurePiece;
-                poolStructurePiece.generate((StructureWorldAccess) world, structureAccessor, chunkGenerator, random, BlockBox.infinite(), pos, keepJigsaws);
-
-                portalEntity.addDungeonEdge(poolStructurePiece.getBoundingBox().getMinX(), poolStructurePiece.getBoundingBox().getMinY(), poolStructurePiece.getBoundingBox().getMinZ());
-                portalEntity.addDungeonEdge(poolStructurePiece.getBoundingBox().getMaxX(), poolStructurePiece.getBoundingBox().getMaxY(), poolStructurePiece.getBoundingBox().getMaxZ());
-                for (int i = poolStructurePiece.getBoundingBox().getMinX(); i <= poolStructurePiece.getBoundingBox().getMaxX(); i++) {
-                    for (int u = poolStructurePiece.getBoundingBox().getMinY(); u <= poolStructurePiece.getBoundingBox().getMaxY(); u++) {
-                        for (int o = poolStructurePiece.getBoundingBox().getMinZ(); o <= poolStructurePiece.getBoundingBox().getMaxZ(); o++) {
-                            BlockPos checkPos = new BlockPos(i, u, o);
-                            if (!world.getBlockState(checkPos).isAir()) {
-                                int blockId = Registries.BLOCK.getRawId(world.getBlockState(checkPos).getBlock());
-                                if (dungeon.containsBlockId(blockId)) {
-                                    if (!blockIdPosMap.containsKey(blockId)) {
-                                        ArrayList<BlockPos> newList = new ArrayList<BlockPos>();
-                                        newList.add(checkPos);
-                                        blockIdPosMap.put(blockId, newList);
-                                    } else {
-                                        blockIdPosMap.get(blockId).add(checkPos);
-                                    }
-                                } else if (dungeon.getBossBlockId() == blockId) {
-                                    portalEntity.setBossBlockPos(checkPos);
-                                } else if (world.getBlockState(checkPos).isOf(Blocks.CHEST) || world.getBlockState(checkPos).isOf(Blocks.BARREL)) {
-                                    chestPosList.add(checkPos);
-                                } else if (world.getBlockState(checkPos).isOf(exitBlock)) {
-                                    exitPosList.add(checkPos);
-                                } else if (world.getBlockState(checkPos).isOf(bossLootBlock)) {
-                                    portalEntity.setBossLootBlockPos(checkPos);
-                                } else if (world.getBlockState(checkPos).isOf(BlockInit.DUNGEON_SPAWNER)) {
-                                    spawnerPosEntityIdMap.put(checkPos, ((DungeonSpawnerEntity) world.getBlockEntity(checkPos)).getLogic().getEntityId());
-                                } else if (world.getBlockState(checkPos).isOf(BlockInit.DUNGEON_GATE)) {
-                                    gatePosList.add(checkPos);
-                                    if (world.getBlockEntity(checkPos) != null && ((DungeonGateEntity) world.getBlockEntity(checkPos)).getUnlockItem() == null) {
-                                        DungeonGateEntity dungeonGateEntity = (DungeonGateEntity) world.getBlockEntity(checkPos);
-                                        dungeonGateEntity.addDungeonEdge(poolStructurePiece.getBoundingBox().getMinX(), poolStructurePiece.getBoundingBox().getMinY(),
-                                                poolStructurePiece.getBoundingBox().getMinZ());
-                                        dungeonGateEntity.addDungeonEdge(poolStructurePiece.getBoundingBox().getMaxX(), poolStructurePiece.getBoundingBox().getMaxY(),
-                                                poolStructurePiece.getBoundingBox().getMaxZ());
-                                        dungeonGateEntity.markDirty();
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-            portalEntity.setChestPosList(chestPosList);
-            portalEntity.setExitPosList(exitPosList);
-            portalEntity.setBlockMap(blockIdPosMap);
-            portalEntity.setSpawnerPosEntityIdMap(spawnerPosEntityIdMap);
-            portalEntity.setGatePosList(gatePosList);
-            portalEntity.markDirty();
-            return true;
+    public static void prepareDungeon(ServerPlayerEntity serverPlayerEntity, ServerWorld dungeonWorld, DungeonPortalEntity portalEntity, DungeonInstance instance) {
+        if (instance.getGenerationTask() == null) {
+            DungeonGenerationTask generationTask = new DungeonGenerationTask(dungeonWorld, portalEntity, instance, portalEntity.getDungeon(), instance.getOrigin());
+            instance.setGenerationTask(generationTask);
+            DungeonTaskScheduler.addTask(generationTask);
         }
-        return false;
+        instance.getGenerationTask().addWaitingUuid(serverPlayerEntity.getUuid());
+        serverPlayerEntity.sendMessage(Text.translatable("text.dungeonz.dungeon_generating"), false);
     }
 
-    private static void refreshDungeon(MinecraftServer server, ServerWorld world, DungeonPortalEntity portalEntity, Dungeon dungeon, String difficulty, boolean luck) {
-        // Remove mobs and items
-        for (int i = 0; i < portalEntity.getDungeonEdgeList().size() / 6; i++) {
-            List<Entity> entities = world.getOtherEntities(null,
-                    new Box(portalEntity.getDungeonEdgeList().get(6 * i), portalEntity.getDungeonEdgeList().get(1 + 6 * i), portalEntity.getDungeonEdgeList().get(2 + 6 * i),
-                            portalEntity.getDungeonEdgeList().get(3 + 6 * i), portalEntity.getDungeonEdgeList().get(4 + 6 * i), portalEntity.getDungeonEdgeList().get(5 + 6 * i)));
-            for (int u = 0; u < entities.size(); u++) {
-                // if (entities.get(u) instanceof LivingEntity || entities.get(u) instanceof ItemEntity || entities.get(u) instanceof ProjectileEntity) {
-                entities.get(u).remove(RemovalReason.DISCARDED);
-                // }
+    public static void collectMarkers(ServerWorld world, Dungeon dungeon, PoolStructurePiece poolStructurePiece, DungeonMarkers markers) {
+        Block exitBlock = Registries.BLOCK.get(dungeon.getExitBlockId());
+        Block bossLootBlock = Registries.BLOCK.get(dungeon.getBossLootBlockId());
+        BlockBox box = poolStructurePiece.getBoundingBox();
+
+        markers.addDungeonEdge(box);
+        DungeonMarkerScanner.MarkerVisitor markerVisitor = (pos, blockState) -> {
+            BlockPos checkPos = BlockPos.fromLong(pos);
+            // Template positions may have been overwritten by a later overlapping piece
+            if (!world.getBlockState(checkPos).isOf(blockState.getBlock())) {
+                return;
             }
-        }
-        // Refresh mobs
-        portalEntity.setDifficulty(difficulty);
-        portalEntity.getBlockMap().forEach((blockId, list) -> {
-            for (int i = 0; i < list.size(); i++) {
-                if (dungeon.getBlockIdBlockReplacementMap().get(blockId) != -1) {
-                    if (dungeon.getBlockIdBlockReplacementMap().get(blockId) == 0) {
-                        world.removeBlock(list.get(i), false);
-                    } else {
-                        world.setBlockState(list.get(i), Registries.BLOCK.get(dungeon.getBlockIdBlockReplacementMap().get(blockId)).getDefaultState(), 3);
-                    }
+            int blockId = Registries.BLOCK.getRawId(blockState.getBlock());
+            if (dungeon.containsBlockId(blockId)) {
+                markers.addBlockPos(blockId, checkPos);
+            } else if (dungeon.getBossBlockId() == blockId) {
+                markers.setBossBlockPos(checkPos);
+            } else if (blockState.isOf(Blocks.CHEST) || blockState.isOf(Blocks.BARREL)) {
+                markers.addChestPos(checkPos);
+            } else if (blockState.isOf(exitBlock)) {
+                markers.addExitPos(checkPos);
+            } else if (blockState.isOf(bossLootBlock)) {
+                markers.setBossLootBlockPos(checkPos);
+            } else if (blockState.isOf(BlockInit.DUNGEON_SPAWNER)) {
+                if (world.getBlockEntity(checkPos) instanceof DungeonSpawnerEntity dungeonSpawnerEntity) {
+                    markers.addSpawnerPos(checkPos, dungeonSpawnerEntity.getLogic().getEntityId());
                 }
-                // dungeon.getBlockIdEntitySpawnChanceMap().containsKey(blockId) &&
-                if (world.getRandom().nextFloat() <= dungeon.getBlockIdEntitySpawnChanceMap().get(blockId).get(difficulty)) {
-                    MobEntity mobEntity = createMob(world, dungeon.getBlockIdEntityMap().get(blockId).get(world.getRandom().nextInt(dungeon.getBlockIdEntityMap().get(blockId).size())), null);
-                    // hopefully initialize doesn't lead to problems
-                    mobEntity.initialize(world, world.getLocalDifficulty(list.get(i)), SpawnReason.STRUCTURE, null, null);
-                    mobEntity.setPersistent();
-                    strengthenMob(mobEntity, dungeon, difficulty, false);
-                    dungeon.getBlockIdBlockReplacementMap().get(blockId);
-                    mobEntity.refreshPositionAndAngles(list.get(i), 360f * world.getRandom().nextFloat(), 0.0f);
-                    world.spawnEntity(mobEntity);
+            } else if (blockState.isOf(BlockInit.DUNGEON_GATE)) {
+                if (!(world.getBlockEntity(checkPos) instanceof DungeonGateEntity dungeonGateEntity)) {
+                    return;
+                }
+                markers.addGatePos(checkPos);
+                if (dungeonGateEntity.getUnlockItem() == null) {
+                    dungeonGateEntity.addDungeonEdge(box.getMinX(), box.getMinY(), box.getMinZ());
+                    dungeonGateEntity.addDungeonEdge(box.getMaxX(), box.getMaxY(), box.getMaxZ());
+                    dungeonGateEntity.markDirty();
                 }
             }
-        });
-        // Refresh boss
-        MobEntity bossEntity = createMob(world, dungeon.getBossEntityType(), dungeon.getBossNbtCompound());
-        bossEntity.initialize(world, world.getLocalDifficulty(portalEntity.getBossBlockPos()), SpawnReason.STRUCTURE, null, null);
-        bossEntity.setPersistent();
-        ((BossEntityAccess) bossEntity).setBoss(portalEntity.getPos(), portalEntity.getWorld().getRegistryKey().getValue().toString());
-        strengthenMob(bossEntity, dungeon, difficulty, true);
-
-        if (dungeon.getBlockIdBlockReplacementMap().get(dungeon.getBossBlockId()) != -1) {
-            if (dungeon.getBlockIdBlockReplacementMap().get(dungeon.getBossBlockId()) == 0) {
-                world.removeBlock(portalEntity.getBossBlockPos(), false);
-            } else {
-                world.setBlockState(portalEntity.getBossBlockPos(), Registries.BLOCK.get(dungeon.getBlockIdBlockReplacementMap().get(dungeon.getBossBlockId())).getDefaultState(), 3);
-            }
+        };
+        if (!DungeonTemplateIndex.visit(world, dungeon, poolStructurePiece, markerVisitor)) {
+            DungeonMarkerScanner.scan(world, box, DungeonMarkerScanner.getMarkerPredicate(dungeon), markerVisitor);
         }
-        bossEntity.refreshPositionAndAngles(portalEntity.getBossBlockPos(), 360f * world.getRandom().nextFloat(), 0.0f);
-        world.spawnEntity(bossEntity);
+    }
 
-        // Refresh chests
-        for (int i = 0; i < portalEntity.getChestPosList().size(); i++) {
-            String lootTableString = dungeon.getDifficultyLootTableIdMap().get(difficulty).get(world.getRandom().nextInt(dungeon.getDifficultyLootTableIdMap().get(difficulty).size()));
-            InventoryHelper.fillInventoryWithLoot(server, world, portalEntity.getChestPosList().get(i), lootTableString, luck);
-        }
-        // Refresh exit
-        for (int i = 0; i < portalEntity.getExitPosList().size(); i++) {
-            world.setBlockState(portalEntity.getExitPosList().get(i),
-                    dungeon.getBlockIdBlockReplacementMap().containsKey(dungeon.getExitBlockId()) && dungeon.getBlockIdBlockReplacementMap().get(dungeon.getExitBlockId()) != -1
-                            ? Registries.BLOCK.get(dungeon.getBlockIdBlockReplacementMap().get(dungeon.getExitBlockId())).getDefaultState()
-                            : Registries.BLOCK.get(dungeon.getExitBlockId()).getDefaultState(),
-                    3);
-        } // Refresh gates
-        for (int i = 0; i < portalEntity.getGatePosList().size(); i++) {
-            world.setBlockState(portalEntity.getGatePosList().get(i), world.getBlockState(portalEntity.getGatePosList().get(i)).cycle(DungeonGateBlock.ENABLED));
-        }
-        // Refresh boss loot
-        world.setBlockState(portalEntity.getBossLootBlockPos(),
-                dungeon.getBlockIdBlockReplacementMap().containsKey(dungeon.getBossLootBlockId()) && dungeon.getBlockIdBlockReplacementMap().get(dungeon.getBossLootBlockId()) != -1
-                        ? Registries.BLOCK.get(dungeon.getBlockIdBlockReplacementMap().get(dungeon.getBossLootBlockId())).getDefaultState()
-                        : Registries.BLOCK.get(dungeon.getBossLootBlockId()).getDefaultState(),
-                3);
-        // Refresh spawner
-        Iterator<Entry<BlockPos, Integer>> spawnerPosIterator = portalEntity.getSpawnerPosEntityIdMap().entrySet().iterator();
-        while (spawnerPosIterator.hasNext()) {
-            Entry<BlockPos, Integer> entry = spawnerPosIterator.next();
-            world.setBlockState(entry.getKey(), BlockInit.DUNGEON_SPAWNER.getDefaultState(), 3);
-            ((DungeonSpawnerEntity) world.getBlockEntity(entry.getKey())).getLogic().setDungeonInfo(dungeon, difficulty,
-                    dungeon.getSpawnerEntityIdMap().containsKey(entry.getValue()) ? dungeon.getSpawnerEntityIdMap().get(entry.getValue()) : 0, Registries.ENTITY_TYPE.get(entry.getValue()));
-        }
-        // Refresh blocks
-        Iterator<Entry<BlockPos, Integer>> replaceBlockIterator = portalEntity.getReplaceBlockIdMap().entrySet().iterator();
-        while (replaceBlockIterator.hasNext()) {
-            Entry<BlockPos, Integer> entry = replaceBlockIterator.next();
-            world.setBlockState(entry.getKey(), Registries.BLOCK.get(entry.getValue()).getDefaultState(), 3);
+    public static DungeonRefreshTask refreshDungeon(ServerWorld world, DungeonPortalEntity portalEntity, DungeonInstance instance, Dungeon dungeon, String difficulty, boolean luck,
+            boolean background) {
+        DungeonRefreshTask refreshTask = new DungeonRefreshTask(world, portalEntity, instance, dungeon, difficulty, luck, background);
+        instance.setRefreshTask(refreshTask);
+        DungeonTaskScheduler.addTask(refreshTask);
+        return refreshTask;
+    }
+
+    @Nullable
+    public static MobEntity spawnDungeonMob(ServerWorld world, Dungeon dungeon, String difficulty, EntityType<?> type, BlockPos pos, long roomKey) {
+        MobEntity mobEntity = createMob(world, type, null);
+        if (mobEntity == null) {
+            return null;
         }
-        portalEntity.getDungeonPlayerUuids().clear();
-        portalEntity.getDeadDungeonPlayerUUIDs().clear();
-        portalEntity.markDirty();
+        // hopefully initialize doesn't lead to problems
+        mobEntity.initialize(world, world.getLocalDifficulty(pos), SpawnReason.STRUCTURE, null, null);
+        mobEntity.setPersistent();
+        strengthenMob(mobEntity, dungeon, difficulty, false);
+        mobEntity.refreshPositionAndAngles(pos, 360f * world.getRandom().nextFloat(), 0.0f);
+        DungeonEntityTracker.track(mobEntity, roomKey);
+        world.spawnEntity(mobEntity);
+        return mobEntity;
     }
 
     @Nullable
-    private static MobEntity createMob(ServerWorld world, EntityType<?> type, @Nullable NbtCompound nbt) {
+    static MobEntity createMob(ServerWorld world, EntityType<?> type, @Nullable NbtCompound nbt) {
         MobEntity mobEntity;
         try {
             Object entity = type.create(world);
@@ -0,0 +1,85 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.dungeonz.access.ServerPlayerAccess;
+import net.dungeonz.block.entity.DungeonPortalEntity;
+import net.dungeonz.init.ConfigInit;
+import net.dungeonz.init.DimensionInit;
+import net.dungeonz.util.DungeonHelper;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.Box;
+
+// Spawns the mobs of a room once a dungeon player gets close and banks them again when the room was left untouched
+public class DungeonPopulationHandler {
+
+    private static final int CHECK_INTERVAL = 10;
+    private static final int REBANK_MARGIN = 16;
+
+    public static void tick(MinecraftServer server) {
+        if (!ConfigInit.CONFIG.lazyMobPopulation || server.getTicks() % CHECK_INTERVAL != 0) {
+            return;
+        }
+        ServerWorld dungeonWorld = server.getWorld(DimensionInit.DUNGEON_WORLD);
+        if (dungeonWorld == null || dungeonWorld.getPlayers().isEmpty()) {
+            return;
+        }
+        Map<DungeonInstance, List<ServerPlayerEntity>> instancePlayerMap = new IdentityHashMap<DungeonInstance, List<ServerPlayerEntity>>();
+        Map<DungeonInstance, DungeonPortalEntity> instancePortalMap = new IdentityHashMap<DungeonInstance, DungeonPortalEntity>();
+        for (ServerPlayerEntity player : dungeonWorld.getPlayers()) {
+            DungeonPortalEntity portalEntity = DungeonHelper.getDungeonPortalEntity(player);
+            if (portalEntity == null || portalEntity.getDungeon() == null) {
+                continue;
+            }
+            DungeonInstance instance = portalEntity.getInstance(((ServerPlayerAccess) player).getDungeonInstanceIndex());
+            if (instance == null || instance.getRooms().isEmpty()) {
+                continue;
+            }
+            if (!instancePlayerMap.containsKey(instance)) {
+                instancePlayerMap.put(instance, new ArrayList<ServerPlayerEntity>());
+                instancePortalMap.put(instance, portalEntity);
+            }
+            instancePlayerMap.get(instance).add(player);
+        }
+        int radius = ConfigInit.CONFIG.mobPopulationRadius;
+        for (Map.Entry<DungeonInstance, List<ServerPlayerEntity>> entry : instancePlayerMap.entrySet()) {
+            DungeonInstance instance = entry.getKey();
+            DungeonPortalEntity portalEntity = instancePortalMap.get(instance);
+            List<Integer> edges = instance.getDungeonEdgeList();
+            List<DungeonRoom> rooms = instance.getRooms();
+            boolean changed = false;
+            for (int i = 0; i < rooms.size() && 5 + 6 * i < edges.size(); i++) {
+                DungeonRoom room = rooms.get(i);
+                Box box = new Box(edges.get(6 * i), edges.get(1 + 6 * i), edges.get(2 + 6 * i), edges.get(3 + 6 * i), edges.get(4 + 6 * i), edges.get(5 + 6 * i));
+                if (room.hasPendingMobs()) {
+                    if (isPlayerNear(entry.getValue(), box.expand(radius))) {
+                        room.populate(dungeonWorld, portalEntity.getDungeon(), instance.getDifficulty());
+                        changed = true;
+                    }
+                } else if (ConfigInit.CONFIG.rebankUntouchedRooms && room.isPopulated() && !isPlayerNear(entry.getValue(), box.expand(radius + REBANK_MARGIN))
+                        && room.isUntouched(dungeonWorld)) {
+                    room.rebank(dungeonWorld);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                portalEntity.markDirty();
+            }
+        }
+    }
+
+    private static boolean isPlayerNear(List<ServerPlayerEntity> players, Box box) {
+        for (int i = 0; i < players.size(); i++) {
+            if (box.contains(players.get(i).getPos())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
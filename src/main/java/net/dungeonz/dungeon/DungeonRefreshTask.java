@@ -0,0 +1,269 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.dungeonz.access.BossEntityAccess;
+import net.dungeonz.block.DungeonGateBlock;
+import net.dungeonz.block.entity.DungeonPortalEntity;
+import net.dungeonz.block.entity.DungeonSpawnerEntity;
+import net.dungeonz.init.BlockInit;
+import net.dungeonz.init.ConfigInit;
+import net.dungeonz.util.InventoryHelper;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.SpawnReason;
+import net.minecraft.entity.Entity.RemovalReason;
+import net.minecraft.entity.mob.MobEntity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.registry.Registries;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
+
+// Resets an instance over several ticks, rooms close to the dungeon spawn come first
+public class DungeonRefreshTask implements DungeonTask {
+
+    private final ServerWorld world;
+    private final ServerWorld portalWorld;
+    private final BlockPos portalPos;
+    private final long portalTicketId;
+    private final DungeonInstance instance;
+    private final Dungeon dungeon;
+    private final String difficulty;
+    private final boolean luck;
+    private final List<Box> clearBoxes = new ArrayList<Box>();
+    private final List<RefreshStep> steps = new ArrayList<RefreshStep>();
+    private final DungeonBlockRestorer blockRestorer;
+    private boolean background;
+    private int clearIndex = 0;
+    private int stepIndex = 0;
+
+    private static class RefreshStep {
+        private final int distance;
+        private final Runnable action;
+
+        private RefreshStep(int distance, Runnable action) {
+            this.distance = distance;
+            this.action = action;
+        }
+    }
+
+    public DungeonRefreshTask(ServerWorld world, DungeonPortalEntity portalEntity, DungeonInstance instance, Dungeon dungeon, String difficulty, boolean luck, boolean background) {
+        this.world = world;
+        this.portalWorld = (ServerWorld) portalEntity.getWorld();
+        this.portalPos = portalEntity.getPos();
+        this.instance = instance;
+        this.dungeon = dungeon;
+        this.difficulty = difficulty;
+        this.luck = luck;
+        this.background = background;
+        this.blockRestorer = new DungeonBlockRestorer(world);
+
+        // Remove mobs and items first, otherwise overlapping piece boxes would discard freshly spawned mobs
+        Vec3d origin = Vec3d.of(instance.getOrigin());
+        List<Integer> edges = instance.getDungeonEdgeList();
+        for (int i = 0; i < edges.size() / 6; i++) {
+            this.clearBoxes.add(new Box(edges.get(6 * i), edges.get(1 + 6 * i), edges.get(2 + 6 * i), edges.get(3 + 6 * i), edges.get(4 + 6 * i), edges.get(5 + 6 * i)));
+        }
+        // Mobs of a room get planned here and spawned once players come close
+        List<DungeonRoom> rooms = new ArrayList<DungeonRoom>();
+        if (ConfigInit.CONFIG.lazyMobPopulation) {
+            for (int i = 0; i < this.clearBoxes.size(); i++) {
+                rooms.add(new DungeonRoom(DungeonEntityTracker.getRoomKey(this.clearBoxes.get(i))));
+            }
+        }
+        instance.setRooms(rooms);
+
+        // Refresh mobs
+        instance.getBlockMap().forEach((blockId, list) -> {
+            for (BlockPos pos : list) {
+                DungeonRoom room = getRoom(pos);
+                long roomKey = getRoomKey(pos);
+                addStep(pos, () -> refreshMob(blockId, pos, room, roomKey));
+            }
+        });
+        this.clearBoxes.sort(Comparator.comparingDouble(box -> box.getCenter().squaredDistanceTo(origin)));
+        // Refresh boss
+        long bossRoomKey = getRoomKey(instance.getBossBlockPos());
+        addStep(instance.getBossBlockPos(), () -> refreshBoss(bossRoomKey));
+        // Refresh chests
+        for (BlockPos pos : instance.getChestPosList()) {
+            addStep(pos, () -> {
+                String lootTableString = dungeon.getDifficultyLootTableIdMap().get(difficulty).get(world.getRandom().nextInt(dungeon.getDifficultyLootTableIdMap().get(difficulty).size()));
+                InventoryHelper.fillInventoryWithLoot(world.getServer(), world, pos, lootTableString, luck);
+            });
+        }
+        // Refresh exit
+        for (BlockPos pos : instance.getExitPosList()) {
+            addStep(pos, () -> this.blockRestorer.setBlockState(pos, getMarkerState(dungeon.getExitBlockId())));
+        }
+        // Refresh gates
+        for (BlockPos pos : instance.getGatePosList()) {
+            addStep(pos, () -> this.blockRestorer.setBlockState(pos, world.getBlockState(pos).cycle(DungeonGateBlock.ENABLED)));
+        }
+        // Refresh boss loot
+        BlockPos bossLootBlockPos = instance.getBossLootBlockPos();
+        addStep(bossLootBlockPos, () -> this.blockRestorer.setBlockState(bossLootBlockPos, getMarkerState(dungeon.getBossLootBlockId())));
+        // Refresh spawner
+        for (Entry<BlockPos, Integer> entry : instance.getSpawnerPosEntityIdMap().entrySet()) {
+            BlockPos pos = entry.getKey();
+            int entityId = entry.getValue();
+            long roomKey = getRoomKey(pos);
+            addStep(pos, () -> {
+                this.blockRestorer.setBlockState(pos, BlockInit.DUNGEON_SPAWNER.getDefaultState());
+                this.blockRestorer.afterFlush(() -> {
+                    if (world.getBlockEntity(pos) instanceof DungeonSpawnerEntity dungeonSpawnerEntity) {
+                        dungeonSpawnerEntity.getLogic().setDungeonInfo(dungeon, difficulty,
+                                dungeon.getSpawnerEntityIdMap().containsKey(entityId) ? dungeon.getSpawnerEntityIdMap().get(entityId) : 0, Registries.ENTITY_TYPE.get(entityId), roomKey);
+                    }
+                });
+            });
+        }
+        // Refresh blocks, copied since players may already break blocks while the refresh runs
+        for (Entry<BlockPos, Integer> entry : new HashMap<BlockPos, Integer>(instance.getReplaceBlockIdMap()).entrySet()) {
+            BlockPos pos = entry.getKey();
+            int blockId = entry.getValue();
+            addStep(pos, () -> this.blockRestorer.setBlockState(pos, Registries.BLOCK.get(blockId).getDefaultState()));
+        }
+        this.steps.sort(Comparator.comparingInt(step -> step.distance));
+
+        instance.getDungeonPlayerUuids().clear();
+        instance.getDeadDungeonPlayerUUIDs().clear();
+        this.portalTicketId = DungeonTaskScheduler.addPortalTicket(this.portalWorld, this.portalPos);
+    }
+
+    private void addStep(BlockPos pos, Runnable action) {
+        this.steps.add(new RefreshStep(pos.getManhattanDistance(this.instance.getOrigin()), action));
+    }
+
+    @Nullable
+    private DungeonRoom getRoom(BlockPos pos) {
+        for (int i = 0; i < this.instance.getRooms().size(); i++) {
+            if (this.clearBoxes.get(i).contains(pos.getX() + 0.5D, pos.getY() + 0.5D, pos.getZ() + 0.5D)) {
+                return this.instance.getRooms().get(i);
+            }
+        }
+        return null;
+    }
+
+    private long getRoomKey(BlockPos pos) {
+        for (int i = 0; i < this.clearBoxes.size(); i++) {
+            if (this.clearBoxes.get(i).contains(pos.getX() + 0.5D, pos.getY() + 0.5D, pos.getZ() + 0.5D)) {
+                return DungeonEntityTracker.getRoomKey(this.clearBoxes.get(i));
+            }
+        }
+        return DungeonEntityTracker.NO_ROOM;
+    }
+
+    private BlockState getMarkerState(int blockId) {
+        if (this.dungeon.getBlockIdBlockReplacementMap().containsKey(blockId) && this.dungeon.getBlockIdBlockReplacementMap().get(blockId) != -1) {
+            return Registries.BLOCK.get(this.dungeon.getBlockIdBlockReplacementMap().get(blockId)).getDefaultState();
+        }
+        return Registries.BLOCK.get(blockId).getDefaultState();
+    }
+
+    private void refreshMob(int blockId, BlockPos pos, @Nullable DungeonRoom room, long roomKey) {
+        if (this.dungeon.getBlockIdBlockReplacementMap().get(blockId) != -1) {
+            if (this.dungeon.getBlockIdBlockReplacementMap().get(blockId) == 0) {
+                this.blockRestorer.setBlockState(pos, Blocks.AIR.getDefaultState());
+            } else {
+                this.blockRestorer.setBlockState(pos, Registries.BLOCK.get(this.dungeon.getBlockIdBlockReplacementMap().get(blockId)).getDefaultState());
+            }
+        }
+        // dungeon.getBlockIdEntitySpawnChanceMap().containsKey(blockId) &&
+        if (this.world.getRandom().nextFloat() <= this.dungeon.getBlockIdEntitySpawnChanceMap().get(blockId).get(this.difficulty)) {
+            EntityType<?> type = this.dungeon.getBlockIdEntityMap().get(blockId).get(this.world.getRandom().nextInt(this.dungeon.getBlockIdEntityMap().get(blockId).size()));
+            if (room != null) {
+                room.addMob(pos, Registries.ENTITY_TYPE.getRawId(type));
+            } else {
+                DungeonPlacementHandler.spawnDungeonMob(this.world, this.dungeon, this.difficulty, type, pos, roomKey);
+            }
+        }
+    }
+
+    private void refreshBoss(long roomKey) {
+        BlockPos bossBlockPos = this.instance.getBossBlockPos();
+        MobEntity bossEntity = DungeonPlacementHandler.createMob(this.world, this.dungeon.getBossEntityType(), this.dungeon.getBossNbtCompound());
+        if (bossEntity == null) {
+            return;
+        }
+        bossEntity.initialize(this.world, this.world.getLocalDifficulty(bossBlockPos), SpawnReason.STRUCTURE, null, null);
+        bossEntity.setPersistent();
+        ((BossEntityAccess) bossEntity).setBoss(this.portalPos, this.portalWorld.getRegistryKey().getValue().toString(), this.instance.getIndex());
+        DungeonPlacementHandler.strengthenMob(bossEntity, this.dungeon, this.difficulty, true);
+
+        if (this.dungeon.getBlockIdBlockReplacementMap().get(this.dungeon.getBossBlockId()) != -1) {
+            if (this.dungeon.getBlockIdBlockReplacementMap().get(this.dungeon.getBossBlockId()) == 0) {
+                this.blockRestorer.setBlockState(bossBlockPos, Blocks.AIR.getDefaultState());
+            } else {
+                this.blockRestorer.setBlockState(bossBlockPos, Registries.BLOCK.get(this.dungeon.getBlockIdBlockReplacementMap().get(this.dungeon.getBossBlockId())).getDefaultState());
+            }
+        }
+        bossEntity.refreshPositionAndAngles(bossBlockPos, 360f * this.world.getRandom().nextFloat(), 0.0f);
+        DungeonEntityTracker.track(bossEntity, roomKey);
+        this.world.spawnEntity(bossEntity);
+    }
+
+    @Override
+    public boolean tick(MinecraftServer server, long deadline) {
+        if (this.instance.getRefreshTask() != this) {
+            return true;
+        }
+        while (this.clearIndex < this.clearBoxes.size()) {
+            List<Entity> entities = this.world.getOtherEntities(null, this.clearBoxes.get(this.clearIndex++), entity -> !(entity instanceof PlayerEntity));
+            for (int i = 0; i < entities.size(); i++) {
+                entities.get(i).remove(RemovalReason.DISCARDED);
+            }
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+        }
+        while (this.stepIndex < this.steps.size()) {
+            this.steps.get(this.stepIndex++).action.run();
+            if (System.nanoTime() >= deadline) {
+                this.blockRestorer.flush();
+                return false;
+            }
+        }
+        this.blockRestorer.flush();
+        this.instance.setRefreshTask(null);
+        if (this.background && this.instance.getDungeonPlayerCount() == 0) {
+            this.instance.setPrepared(this.difficulty, this.luck);
+        }
+        // The task keeps the instance itself, the portal is only needed to get saved
+        if (this.portalWorld.getBlockEntity(this.portalPos) instanceof DungeonPortalEntity dungeonPortalEntity) {
+            dungeonPortalEntity.markDirty();
+        }
+        return true;
+    }
+
+    @Override
+    public void onRemoved() {
+        DungeonTaskScheduler.removePortalTicket(this.portalWorld, this.portalPos, this.portalTicketId);
+    }
+
+    @Override
+    public boolean isBackground() {
+        return this.background;
+    }
+
+    // A group entered while the instance was refreshed in the background
+    public void setForeground() {
+        this.background = false;
+    }
+
+    public boolean isFor(String difficulty, boolean luck) {
+        return this.difficulty.equals(difficulty) && this.luck == luck;
+    }
+
+}
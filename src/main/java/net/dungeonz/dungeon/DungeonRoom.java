@@ -0,0 +1,113 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import net.dungeonz.util.DungeonNbtHelper;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.Entity.RemovalReason;
+import net.minecraft.entity.mob.MobEntity;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.Registries;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+
+// Mob spawn plan of a single piece bounding box, only spawned once a dungeon player comes close
+public class DungeonRoom {
+
+    private final long roomKey;
+    private List<BlockPos> mobPosList = new ArrayList<BlockPos>();
+    private List<Integer> mobTypeIdList = new ArrayList<Integer>();
+    private List<UUID> mobUuids = new ArrayList<UUID>();
+    private boolean populated = false;
+
+    public DungeonRoom(long roomKey) {
+        this.roomKey = roomKey;
+    }
+
+    public static DungeonRoom fromNbt(NbtCompound nbt, long roomKey) {
+        DungeonRoom room = new DungeonRoom(roomKey);
+        room.mobPosList = DungeonNbtHelper.getBlockPosList(nbt, "MobPositions");
+        room.mobTypeIdList = DungeonNbtHelper.getIntList(nbt, "MobTypeIds");
+        room.mobUuids = DungeonNbtHelper.getUuidList(nbt, "MobUuids");
+        room.populated = nbt.getBoolean("Populated");
+        room.updatePendingCount();
+        return room;
+    }
+
+    public NbtCompound toNbt() {
+        NbtCompound nbt = new NbtCompound();
+        DungeonNbtHelper.putBlockPosList(nbt, "MobPositions", this.mobPosList);
+        DungeonNbtHelper.putIntList(nbt, "MobTypeIds", this.mobTypeIdList);
+        DungeonNbtHelper.putUuidList(nbt, "MobUuids", this.mobUuids);
+        nbt.putBoolean("Populated", this.populated);
+        return nbt;
+    }
+
+    public void addMob(BlockPos pos, int entityTypeId) {
+        this.mobPosList.add(pos);
+        this.mobTypeIdList.add(entityTypeId);
+        this.updatePendingCount();
+    }
+
+    // Gates must not open in front of rooms whose mobs are not spawned yet
+    private void updatePendingCount() {
+        DungeonEntityTracker.setPendingCount(this.roomKey, this.populated ? 0 : this.mobPosList.size());
+    }
+
+    public void release() {
+        DungeonEntityTracker.setPendingCount(this.roomKey, 0);
+    }
+
+    public long getRoomKey() {
+        return this.roomKey;
+    }
+
+    public boolean hasPendingMobs() {
+        return !this.populated && !this.mobPosList.isEmpty();
+    }
+
+    public boolean isPopulated() {
+        return this.populated;
+    }
+
+    public void populate(ServerWorld world, Dungeon dungeon, String difficulty) {
+        for (int i = 0; i < Math.min(this.mobPosList.size(), this.mobTypeIdList.size()); i++) {
+            MobEntity mobEntity = DungeonPlacementHandler.spawnDungeonMob(world, dungeon, difficulty, Registries.ENTITY_TYPE.get(this.mobTypeIdList.get(i)), this.mobPosList.get(i),
+                    this.roomKey);
+            if (mobEntity != null) {
+                this.mobUuids.add(mobEntity.getUuid());
+            }
+        }
+        this.populated = true;
+        this.updatePendingCount();
+    }
+
+    // Untouched means every mob is still alive, unhurt and not chasing anyone
+    public boolean isUntouched(ServerWorld world) {
+        if (this.mobUuids.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < this.mobUuids.size(); i++) {
+            Entity entity = world.getEntity(this.mobUuids.get(i));
+            if (!(entity instanceof MobEntity mobEntity) || !mobEntity.isAlive() || mobEntity.getHealth() < mobEntity.getMaxHealth() || mobEntity.getTarget() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void rebank(ServerWorld world) {
+        for (int i = 0; i < this.mobUuids.size(); i++) {
+            Entity entity = world.getEntity(this.mobUuids.get(i));
+            if (entity != null) {
+                entity.remove(RemovalReason.DISCARDED);
+            }
+        }
+        this.mobUuids.clear();
+        this.populated = false;
+        this.updatePendingCount();
+    }
+
+}
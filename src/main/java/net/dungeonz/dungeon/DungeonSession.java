@@ -0,0 +1,55 @@
+package net.dungeonz.dungeon;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.dungeonz.block.entity.DungeonPortalEntity;
+import net.minecraft.server.world.ServerWorld;
+
+// Resolved dungeon state of a player inside a dungeon, saves the portal block entity lookup on every check
+public class DungeonSession {
+
+    private final DungeonPortalEntity portalEntity;
+    @Nullable
+    private final Dungeon dungeon;
+    @Nullable
+    private final DungeonInstance instance;
+    private final int generation;
+    // Keeps the portal loaded for the run, so changes to the instance still get saved with the portal
+    private final long portalTicketId;
+    private boolean closed = false;
+
+    public DungeonSession(DungeonPortalEntity portalEntity, @Nullable DungeonInstance instance) {
+        this.portalEntity = portalEntity;
+        this.dungeon = portalEntity.getDungeon();
+        this.instance = instance;
+        this.generation = Dungeon.getGeneration();
+        this.portalTicketId = DungeonTaskScheduler.addPortalTicket((ServerWorld) portalEntity.getWorld(), portalEntity.getPos());
+    }
+
+    // Stale after a reload or once the portal got broken
+    public boolean isValid() {
+        return !this.closed && this.generation == Dungeon.getGeneration() && !this.portalEntity.isRemoved();
+    }
+
+    public void close() {
+        if (!this.closed) {
+            this.closed = true;
+            DungeonTaskScheduler.removePortalTicket((ServerWorld) this.portalEntity.getWorld(), this.portalEntity.getPos(), this.portalTicketId);
+        }
+    }
+
+    public DungeonPortalEntity getPortalEntity() {
+        return this.portalEntity;
+    }
+
+    @Nullable
+    public DungeonInstance getInstance() {
+        return this.instance;
+    }
+
+    @Nullable
+    public Dungeon getDungeon() {
+        return this.dungeon;
+    }
+
+}
@@ -0,0 +1,88 @@
+package net.dungeonz.dungeon;
+
+import java.util.HashMap;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.dungeonz.DungeonzMain;
+import net.minecraft.entity.EntityDimensions;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.attribute.DefaultAttributeContainer;
+import net.minecraft.entity.attribute.DefaultAttributeRegistry;
+import net.minecraft.entity.attribute.EntityAttributes;
+import net.minecraft.entity.mob.MobEntity;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.math.Box;
+import net.rpgdifficulty.api.MobStrengthener;
+
+// Resolved entity type and strength factor per entity type, dungeon and difficulty, used by dungeon spawners
+public class DungeonSpawnTemplate {
+
+    private static final HashMap<String, DungeonSpawnTemplate> TEMPLATES = new HashMap<String, DungeonSpawnTemplate>();
+
+    private final EntityType<?> type;
+    private final EntityDimensions dimensions;
+    private final boolean strengthen;
+    private final float strengthFactor;
+    private final boolean hasDamage;
+    private final boolean hasProtection;
+
+    private DungeonSpawnTemplate(EntityType<?> type, @Nullable Dungeon dungeon, String difficulty) {
+        this.type = type;
+        this.dimensions = type.getDimensions();
+
+        Float strengthFactor = dungeon != null ? dungeon.getDifficultyMobModificatorMap().get(difficulty) : null;
+        @SuppressWarnings("unchecked")
+        DefaultAttributeContainer attributes = DefaultAttributeRegistry.hasDefinitionFor(type) ? DefaultAttributeRegistry.get((EntityType<? extends LivingEntity>) type) : null;
+        this.strengthen = strengthFactor != null && attributes != null;
+        this.strengthFactor = strengthFactor != null ? strengthFactor : 1.0f;
+        this.hasDamage = attributes != null && attributes.has(EntityAttributes.GENERIC_ATTACK_DAMAGE);
+        this.hasProtection = attributes != null && attributes.has(EntityAttributes.GENERIC_ARMOR);
+    }
+
+    public static DungeonSpawnTemplate get(EntityType<?> type, @Nullable Dungeon dungeon, String difficulty) {
+        String key = (dungeon != null ? dungeon.getDungeonTypeId() : "") + "|" + difficulty + "|" + Registries.ENTITY_TYPE.getRawId(type);
+        DungeonSpawnTemplate template = TEMPLATES.get(key);
+        if (template == null) {
+            template = new DungeonSpawnTemplate(type, dungeon, difficulty);
+            TEMPLATES.put(key, template);
+        }
+        return template;
+    }
+
+    public static void clear() {
+        TEMPLATES.clear();
+    }
+
+    public EntityType<?> getType() {
+        return this.type;
+    }
+
+    public Box getBoundingBox(double x, double y, double z) {
+        return this.dimensions.getBoxAt(x, y, z);
+    }
+
+    // Scales the live values like DungeonPlacementHandler.strengthenMob, size based health and spawn nbt attributes are kept
+    public void strengthen(MobEntity mobEntity) {
+        if (!this.strengthen) {
+            return;
+        }
+        mobEntity.getAttributeInstance(EntityAttributes.GENERIC_MAX_HEALTH).setBaseValue(this.scale(mobEntity.getAttributeValue(EntityAttributes.GENERIC_MAX_HEALTH)));
+        mobEntity.heal(mobEntity.getMaxHealth());
+        if (this.hasDamage) {
+            mobEntity.getAttributeInstance(EntityAttributes.GENERIC_ATTACK_DAMAGE).setBaseValue(this.scale(mobEntity.getAttributeValue(EntityAttributes.GENERIC_ATTACK_DAMAGE)));
+        }
+        if (this.hasProtection) {
+            mobEntity.getAttributeInstance(EntityAttributes.GENERIC_ARMOR).setBaseValue(this.scale(mobEntity.getAttributeValue(EntityAttributes.GENERIC_ARMOR)));
+        }
+        if (DungeonzMain.isRpgDifficultyLoaded) {
+            MobStrengthener.setMobHealthMultiplier(mobEntity, this.strengthFactor);
+        }
+    }
+
+    private double scale(double value) {
+        return Math.round(value * this.strengthFactor * 100.0D) / 100.0D;
+    }
+
+}
@@ -0,0 +1,122 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.dungeonz.access.SpawnerTrackerAccess;
+import net.dungeonz.block.entity.DungeonSpawnerEntity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.predicate.entity.EntityPredicates;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+
+// Dungeon spawners hashed by chunk section, activated once per tick from the player positions instead of every spawner scanning every player
+public class DungeonSpawnerTracker {
+
+    private final Long2ObjectOpenHashMap<List<DungeonSpawnerEntity>> sectionSpawners = new Long2ObjectOpenHashMap<List<DungeonSpawnerEntity>>();
+    // A negative player range activates the spawner for any player in the world
+    private final List<DungeonSpawnerEntity> unboundedSpawners = new ArrayList<DungeonSpawnerEntity>();
+    private final List<DungeonSpawnerEntity> activeSpawners = new ArrayList<DungeonSpawnerEntity>();
+    private int maxPlayerRange = 0;
+    private long lastUpdateTime = Long.MIN_VALUE;
+
+    // Each world keeps its own tracker, which is only used by the thread of that world
+    public static DungeonSpawnerTracker get(World world) {
+        return ((SpawnerTrackerAccess) world).getDungeonSpawnerTracker();
+    }
+
+    public void add(DungeonSpawnerEntity spawnerEntity) {
+        this.remove(spawnerEntity);
+        int playerRange = spawnerEntity.getLogic().getRequiredPlayerRange();
+        if (playerRange < 0) {
+            this.unboundedSpawners.add(spawnerEntity);
+        } else {
+            long sectionKey = ChunkSectionPos.toLong(spawnerEntity.getPos());
+            List<DungeonSpawnerEntity> spawners = this.sectionSpawners.get(sectionKey);
+            if (spawners == null) {
+                spawners = new ArrayList<DungeonSpawnerEntity>();
+                this.sectionSpawners.put(sectionKey, spawners);
+            }
+            spawners.add(spawnerEntity);
+            this.maxPlayerRange = Math.max(this.maxPlayerRange, playerRange);
+        }
+        // Checked again on the next update
+        this.lastUpdateTime = Long.MIN_VALUE;
+    }
+
+    public void remove(DungeonSpawnerEntity spawnerEntity) {
+        spawnerEntity.getLogic().setPlayerInRange(false);
+        this.activeSpawners.remove(spawnerEntity);
+        if (this.unboundedSpawners.remove(spawnerEntity)) {
+            return;
+        }
+        long sectionKey = ChunkSectionPos.toLong(spawnerEntity.getPos());
+        List<DungeonSpawnerEntity> spawners = this.sectionSpawners.get(sectionKey);
+        if (spawners != null) {
+            spawners.remove(spawnerEntity);
+            if (spawners.isEmpty()) {
+                this.sectionSpawners.remove(sectionKey);
+            }
+        }
+    }
+
+    // The first spawner ticking in a world updates all spawners of that world
+    public void update(World world) {
+        if (this.lastUpdateTime == world.getTime()) {
+            return;
+        }
+        this.lastUpdateTime = world.getTime();
+        for (int i = 0; i < this.activeSpawners.size(); i++) {
+            this.activeSpawners.get(i).getLogic().setPlayerInRange(false);
+        }
+        this.activeSpawners.clear();
+        if (this.sectionSpawners.isEmpty() && this.unboundedSpawners.isEmpty()) {
+            return;
+        }
+        int sectionRange = ChunkSectionPos.getSectionCoord(this.maxPlayerRange) + 1;
+        boolean anyPlayer = false;
+        for (PlayerEntity playerEntity : world.getPlayers()) {
+            if (!EntityPredicates.EXCEPT_CREATIVE_OR_SPECTATOR.test(playerEntity) || !EntityPredicates.VALID_LIVING_ENTITY.test(playerEntity)) {
+                continue;
+            }
+            anyPlayer = true;
+            int sectionX = ChunkSectionPos.getSectionCoord(playerEntity.getBlockX());
+            int sectionY = ChunkSectionPos.getSectionCoord(playerEntity.getBlockY());
+            int sectionZ = ChunkSectionPos.getSectionCoord(playerEntity.getBlockZ());
+            for (int x = sectionX - sectionRange; x <= sectionX + sectionRange; x++) {
+                for (int y = sectionY - sectionRange; y <= sectionY + sectionRange; y++) {
+                    for (int z = sectionZ - sectionRange; z <= sectionZ + sectionRange; z++) {
+                        List<DungeonSpawnerEntity> spawners = this.sectionSpawners.get(ChunkSectionPos.asLong(x, y, z));
+                        if (spawners == null) {
+                            continue;
+                        }
+                        for (int i = 0; i < spawners.size(); i++) {
+                            DungeonSpawnerEntity spawnerEntity = spawners.get(i);
+                            BlockPos pos = spawnerEntity.getPos();
+                            double range = spawnerEntity.getLogic().getRequiredPlayerRange();
+                            if (playerEntity.squaredDistanceTo((double) pos.getX() + 0.5, (double) pos.getY() + 0.5, (double) pos.getZ() + 0.5) < range * range) {
+                                this.activate(spawnerEntity);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        // Unbounded spawners only need one eligible player, no matter where
+        if (anyPlayer) {
+            for (int i = 0; i < this.unboundedSpawners.size(); i++) {
+                this.activate(this.unboundedSpawners.get(i));
+            }
+        }
+    }
+
+    private void activate(DungeonSpawnerEntity spawnerEntity) {
+        if (!spawnerEntity.getLogic().isPlayerInRange()) {
+            spawnerEntity.getLogic().setPlayerInRange(true);
+            this.activeSpawners.add(spawnerEntity);
+        }
+    }
+
+}
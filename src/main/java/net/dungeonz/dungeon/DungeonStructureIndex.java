@@ -0,0 +1,70 @@
+package net.dungeonz.dungeon;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.PersistentState;
+
+// Dungeon structure starts found by compass searches, so each start only has to be searched once per world
+public class DungeonStructureIndex extends PersistentState {
+
+    private final Map<String, LongArrayList> structureStarts = new HashMap<String, LongArrayList>();
+
+    public static DungeonStructureIndex get(ServerWorld world) {
+        return world.getPersistentStateManager().getOrCreate(DungeonStructureIndex::fromNbt, DungeonStructureIndex::new, "dungeonz_structures");
+    }
+
+    private static DungeonStructureIndex fromNbt(NbtCompound nbt) {
+        DungeonStructureIndex index = new DungeonStructureIndex();
+        for (String dungeonType : nbt.getKeys()) {
+            index.structureStarts.put(dungeonType, new LongArrayList(nbt.getLongArray(dungeonType)));
+        }
+        return index;
+    }
+
+    @Override
+    public NbtCompound writeNbt(NbtCompound nbt) {
+        for (Map.Entry<String, LongArrayList> entry : this.structureStarts.entrySet()) {
+            nbt.putLongArray(entry.getKey(), entry.getValue().toLongArray());
+        }
+        return nbt;
+    }
+
+    public void addStructureStart(String dungeonType, BlockPos pos) {
+        LongArrayList starts = this.structureStarts.get(dungeonType);
+        if (starts == null) {
+            starts = new LongArrayList();
+            this.structureStarts.put(dungeonType, starts);
+        }
+        if (!starts.contains(pos.asLong())) {
+            starts.add(pos.asLong());
+            this.markDirty();
+        }
+    }
+
+    @Nullable
+    public BlockPos getNearestStructureStart(String dungeonType, BlockPos pos, int maxDistance) {
+        LongArrayList starts = this.structureStarts.get(dungeonType);
+        if (starts == null) {
+            return null;
+        }
+        BlockPos nearestPos = null;
+        long nearestDistance = (long) maxDistance * maxDistance;
+        for (int i = 0; i < starts.size(); i++) {
+            BlockPos startPos = BlockPos.fromLong(starts.getLong(i));
+            long distance = (long) (startPos.getX() - pos.getX()) * (startPos.getX() - pos.getX()) + (long) (startPos.getZ() - pos.getZ()) * (startPos.getZ() - pos.getZ());
+            if (distance <= nearestDistance) {
+                nearestDistance = distance;
+                nearestPos = startPos;
+            }
+        }
+        return nearestPos;
+    }
+
+}
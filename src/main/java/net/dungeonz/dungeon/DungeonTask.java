@@ -0,0 +1,19 @@
+package net.dungeonz.dungeon;
+
+import net.minecraft.server.MinecraftServer;
+
+public interface DungeonTask {
+
+    // Work until the deadline (System.nanoTime) is reached, return true when finished
+    public boolean tick(MinecraftServer server, long deadline);
+
+    // Background tasks only get the budget left over by other tasks and pause while the server is lagging
+    public default boolean isBackground() {
+        return false;
+    }
+
+    // Called once the task finished or failed
+    public default void onRemoved() {
+    }
+
+}
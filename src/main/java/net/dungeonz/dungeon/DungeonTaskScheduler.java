@@ -0,0 +1,81 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import net.dungeonz.DungeonzMain;
+import net.dungeonz.init.ConfigInit;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ChunkTicketType;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+public class DungeonTaskScheduler {
+
+    private static final List<DungeonTask> TASKS = new ArrayList<DungeonTask>();
+    private static final List<DungeonTask> QUEUED_TASKS = new ArrayList<DungeonTask>();
+    // Keeps a portal chunk loaded while a task or a dungeon run works with its portal, otherwise the portal block entity gets removed halfway
+    private static final ChunkTicketType<Long> PORTAL_TICKET = ChunkTicketType.create("dungeonz_portal", Long::compareTo);
+    private static long nextTicketId = 0;
+
+    public static void addTask(DungeonTask task) {
+        QUEUED_TASKS.add(task);
+    }
+
+    public static void tick(MinecraftServer server) {
+        if (!QUEUED_TASKS.isEmpty()) {
+            TASKS.addAll(QUEUED_TASKS);
+            QUEUED_TASKS.clear();
+        }
+        if (TASKS.isEmpty()) {
+            return;
+        }
+        long deadline = System.nanoTime() + ConfigInit.CONFIG.taskTickBudget * 1000000L;
+        tickTasks(server, deadline, false);
+        if (System.nanoTime() < deadline && server.getTickTime() < ConfigInit.CONFIG.backgroundTaskMaxMspt) {
+            tickTasks(server, deadline, true);
+        }
+    }
+
+    private static void tickTasks(MinecraftServer server, long deadline, boolean background) {
+        Iterator<DungeonTask> iterator = TASKS.iterator();
+        while (iterator.hasNext()) {
+            DungeonTask task = iterator.next();
+            if (task.isBackground() != background) {
+                continue;
+            }
+            boolean finished;
+            try {
+                finished = task.tick(server, deadline);
+            } catch (Exception exception) {
+                DungeonzMain.LOGGER.error("Failed to tick dungeon task", exception);
+                finished = true;
+            }
+            if (finished) {
+                iterator.remove();
+                task.onRemoved();
+            }
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+    }
+
+    public static long addPortalTicket(ServerWorld world, BlockPos portalPos) {
+        long ticketId = nextTicketId++;
+        world.getChunkManager().addTicket(PORTAL_TICKET, new ChunkPos(portalPos), 1, ticketId);
+        return ticketId;
+    }
+
+    public static void removePortalTicket(ServerWorld world, BlockPos portalPos, long ticketId) {
+        world.getChunkManager().removeTicket(PORTAL_TICKET, new ChunkPos(portalPos), 1, ticketId);
+    }
+
+    public static void clear() {
+        TASKS.clear();
+        QUEUED_TASKS.clear();
+    }
+
+}
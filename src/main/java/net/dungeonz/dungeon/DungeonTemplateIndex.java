@@ -0,0 +1,122 @@
+package net.dungeonz.dungeon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+
+import net.dungeonz.DungeonzMain;
+import net.dungeonz.init.BlockInit;
+import net.dungeonz.mixin.access.SinglePoolElementAccessor;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.command.argument.BlockArgumentParser;
+import net.minecraft.registry.Registries;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.structure.PoolStructurePiece;
+import net.minecraft.structure.StructurePlacementData;
+import net.minecraft.structure.StructureTemplate;
+import net.minecraft.structure.pool.SinglePoolElement;
+import net.minecraft.util.BlockMirror;
+import net.minecraft.util.BlockRotation;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+
+public class DungeonTemplateIndex {
+
+    private static final HashMap<String, TemplateMarkers> TEMPLATE_MARKERS = new HashMap<String, TemplateMarkers>();
+
+    // Relative marker positions of a template, already rotated and mirrored
+    private static class TemplateMarkers {
+        private final long[] positions;
+        private final BlockState[] states;
+
+        private TemplateMarkers(long[] positions, BlockState[] states) {
+            this.positions = positions;
+            this.states = states;
+        }
+    }
+
+    // Returns false if the piece can't be indexed, processors may change the placed blocks
+    public static boolean visit(ServerWorld world, Dungeon dungeon, PoolStructurePiece poolStructurePiece, DungeonMarkerScanner.MarkerVisitor visitor) {
+        if (!(poolStructurePiece.getPoolElement() instanceof SinglePoolElement)) {
+            return false;
+        }
+        SinglePoolElementAccessor poolElement = (SinglePoolElementAccessor) poolStructurePiece.getPoolElement();
+        if (!poolElement.getProcessors().value().getList().isEmpty()) {
+            return false;
+        }
+        Optional<Identifier> templateId = poolElement.getLocation().left();
+        if (templateId.isEmpty()) {
+            return false;
+        }
+        BlockRotation rotation = poolStructurePiece.getRotation();
+        BlockMirror mirror = BlockMirror.NONE;
+        String key = dungeon.getDungeonTypeId() + "|" + templateId.get() + "|" + rotation.name() + "|" + mirror.name();
+
+        TemplateMarkers templateMarkers = TEMPLATE_MARKERS.get(key);
+        if (templateMarkers == null) {
+            templateMarkers = createTemplateMarkers(world.getStructureTemplateManager().getTemplateOrBlank(templateId.get()), dungeon, rotation, mirror);
+            TEMPLATE_MARKERS.put(key, templateMarkers);
+        }
+        BlockPos piecePos = poolStructurePiece.getPos();
+        for (int i = 0; i < templateMarkers.positions.length; i++) {
+            visitor.visit(BlockPos.add(templateMarkers.positions[i], piecePos.getX(), piecePos.getY(), piecePos.getZ()), templateMarkers.states[i]);
+        }
+        return true;
+    }
+
+    private static TemplateMarkers createTemplateMarkers(StructureTemplate template, Dungeon dungeon, BlockRotation rotation, BlockMirror mirror) {
+        List<Block> markerBlocks = new ArrayList<Block>();
+        dungeon.getBlockIdEntityMap().keySet().forEach(blockId -> markerBlocks.add(Registries.BLOCK.get(blockId)));
+        markerBlocks.add(Registries.BLOCK.get(dungeon.getBossBlockId()));
+        markerBlocks.add(Registries.BLOCK.get(dungeon.getExitBlockId()));
+        markerBlocks.add(Registries.BLOCK.get(dungeon.getBossLootBlockId()));
+        markerBlocks.add(Blocks.CHEST);
+        markerBlocks.add(Blocks.BARREL);
+        markerBlocks.add(BlockInit.DUNGEON_SPAWNER);
+        markerBlocks.add(BlockInit.DUNGEON_GATE);
+
+        StructurePlacementData placementData = new StructurePlacementData().setRotation(rotation).setMirror(mirror);
+        List<Long> positions = new ArrayList<Long>();
+        List<BlockState> states = new ArrayList<BlockState>();
+        for (Block block : markerBlocks.stream().distinct().toList()) {
+            if (block == Blocks.AIR) {
+                continue;
+            }
+            for (StructureTemplate.StructureBlockInfo blockInfo : template.getInfosForBlock(BlockPos.ORIGIN, placementData, block)) {
+                positions.add(blockInfo.pos().asLong());
+                states.add(blockInfo.state());
+            }
+        }
+        // Jigsaws get replaced by their final state which may be a marker too
+        for (StructureTemplate.StructureBlockInfo blockInfo : template.getInfosForBlock(BlockPos.ORIGIN, placementData, Blocks.JIGSAW)) {
+            if (blockInfo.nbt() == null) {
+                continue;
+            }
+            try {
+                BlockState finalState = BlockArgumentParser.block(Registries.BLOCK.getReadOnlyWrapper(), blockInfo.nbt().getString("final_state"), true).blockState();
+                if (markerBlocks.contains(finalState.getBlock()) && !finalState.isAir()) {
+                    positions.add(blockInfo.pos().asLong());
+                    states.add(finalState);
+                }
+            } catch (CommandSyntaxException exception) {
+                DungeonzMain.LOGGER.warn("Failed to read jigsaw final state of {}", blockInfo.pos());
+            }
+        }
+
+        long[] positionArray = new long[positions.size()];
+        for (int i = 0; i < positions.size(); i++) {
+            positionArray[i] = positions.get(i);
+        }
+        return new TemplateMarkers(positionArray, states.toArray(new BlockState[0]));
+    }
+
+    public static void clear() {
+        TEMPLATE_MARKERS.clear();
+    }
+
+}
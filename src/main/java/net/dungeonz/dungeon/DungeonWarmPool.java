@@ -0,0 +1,64 @@
+package net.dungeonz.dungeon;
+
+import net.dungeonz.block.entity.DungeonPortalEntity;
+import net.dungeonz.init.ConfigInit;
+import net.dungeonz.init.DimensionInit;
+import net.minecraft.server.world.ServerWorld;
+
+// Gets a number of generated and refreshed instances ready once a player opens the screen of a portal which had a run before
+public class DungeonWarmPool {
+
+    public static void onScreenOpened(ServerWorld world, DungeonPortalEntity portalEntity) {
+        if (ConfigInit.CONFIG.warmDungeonInstances <= 0 || portalEntity.getDungeon() == null || !hasRun(portalEntity)) {
+            return;
+        }
+        ServerWorld dungeonWorld = world.getServer().getWorld(DimensionInit.DUNGEON_WORLD);
+        if (dungeonWorld == null) {
+            return;
+        }
+        int time = (int) world.getTime();
+        String difficulty = portalEntity.getDifficulty();
+        boolean luck = portalEntity.getDisableEffects();
+
+        int warmCount = 0;
+        for (DungeonInstance instance : portalEntity.getInstances()) {
+            if (instance.isWarming() || (instance.isFree(time) && instance.isDungeonStructureGenerated() && instance.isPreparedFor(difficulty, luck))) {
+                warmCount++;
+            }
+        }
+        while (warmCount < ConfigInit.CONFIG.warmDungeonInstances) {
+            DungeonInstance warmInstance = null;
+            for (DungeonInstance instance : portalEntity.getInstances()) {
+                if (instance.isFree(time) && !instance.isWarming() && !(instance.isDungeonStructureGenerated() && instance.isPreparedFor(difficulty, luck))
+                        && (warmInstance == null || (!warmInstance.isDungeonStructureGenerated() && instance.isDungeonStructureGenerated()))) {
+                    warmInstance = instance;
+                }
+            }
+            if (warmInstance == null) {
+                warmInstance = portalEntity.allocateInstance(dungeonWorld);
+                if (warmInstance == null) {
+                    return;
+                }
+            }
+            if (!warmInstance.isDungeonStructureGenerated()) {
+                DungeonGenerationTask generationTask = new DungeonGenerationTask(dungeonWorld, portalEntity, warmInstance, portalEntity.getDungeon(), warmInstance.getOrigin());
+                warmInstance.setGenerationTask(generationTask);
+                DungeonTaskScheduler.addTask(generationTask);
+            } else {
+                DungeonPlacementHandler.refreshDungeon(dungeonWorld, portalEntity, warmInstance, portalEntity.getDungeon(), difficulty, luck, true);
+            }
+            warmCount++;
+        }
+    }
+
+    // Only portals which were entered before have a generated instance
+    private static boolean hasRun(DungeonPortalEntity portalEntity) {
+        for (DungeonInstance instance : portalEntity.getInstances()) {
+            if (instance.isDungeonStructureGenerated()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -1,7 +1,19 @@
 package net.dungeonz.init;
 
 import net.dungeonz.access.ClientPlayerAccess;
+import net.dungeonz.access.ServerPlayerAccess;
+import net.dungeonz.dungeon.Dungeon;
+import net.dungeonz.dungeon.DungeonEntityTracker;
+import net.dungeonz.dungeon.DungeonLocator;
+import net.dungeonz.dungeon.DungeonLootPreview;
+import net.dungeonz.dungeon.DungeonPopulationHandler;
+import net.dungeonz.dungeon.DungeonTaskScheduler;
+import net.dungeonz.network.DungeonServerPacket;
 import net.dungeonz.util.DungeonHelper;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerEntityEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.fabricmc.fabric.api.entity.event.v1.EntityElytraEvents;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.server.network.ServerPlayerEntity;
@@ -14,8 +26,9 @@ public class EventInit {
                 PlayerEntity playerEntity = (PlayerEntity) entity;
                 if (playerEntity != null && !playerEntity.isCreative() && playerEntity.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD) {
                     if (!playerEntity.getWorld().isClient()) {
-                        if (DungeonHelper.getCurrentDungeon((ServerPlayerEntity) playerEntity) != null) {
-                            return DungeonHelper.getCurrentDungeon((ServerPlayerEntity) playerEntity).isElytraAllowed();
+                        Dungeon dungeon = DungeonHelper.getCurrentDungeon((ServerPlayerEntity) playerEntity);
+                        if (dungeon != null) {
+                            return dungeon.isElytraAllowed();
                         }
                     } else {
                         return ((ClientPlayerAccess) playerEntity).isElytraAllowed();
@@ -24,6 +37,24 @@ public class EventInit {
             }
             return true;
         });
+        ServerTickEvents.END_SERVER_TICK.register(DungeonTaskScheduler::tick);
+        ServerTickEvents.END_SERVER_TICK.register(DungeonPopulationHandler::tick);
+        ServerTickEvents.END_SERVER_TICK.register(DungeonEntityTracker::tick);
+        // Last, so packets queued by the other tick handlers still go out this tick
+        ServerTickEvents.END_SERVER_TICK.register(DungeonServerPacket::tick);
+        // Releases the portal ticket of the session, it gets resolved again on the next join
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> ((ServerPlayerAccess) handler.player).setDungeonSession(null));
+        ServerEntityEvents.ENTITY_LOAD.register(DungeonEntityTracker::onEntityLoad);
+        ServerEntityEvents.ENTITY_UNLOAD.register(DungeonEntityTracker::onEntityUnload);
+        // Loot tables are only complete once the whole reload finished
+        ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((server, resourceManager, success) -> DungeonLootPreview.clear());
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            DungeonTaskScheduler.clear();
+            DungeonEntityTracker.clear();
+            DungeonLocator.clear();
+            DungeonLootPreview.clear();
+            DungeonServerPacket.clear();
+        });
     }
 
 }
@@ -1,5 +1,6 @@
 package net.dungeonz.init;
 
+import net.dungeonz.block.render.DungeonGateBakedModel;
 import net.dungeonz.block.render.DungeonGateRenderer;
 import net.dungeonz.block.render.DungeonPortalRenderer;
 import net.dungeonz.block.render.DungeonSpawnerRenderer;
@@ -8,11 +9,14 @@ import net.dungeonz.item.DungeonCompassItem;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.fabricmc.fabric.api.blockrenderlayer.v1.BlockRenderLayerMap;
+import net.fabricmc.fabric.api.client.model.loading.v1.ModelLoadingPlugin;
+import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderEvents;
 import net.minecraft.client.gui.screen.ingame.HandledScreens;
 import net.minecraft.client.item.CompassAnglePredicateProvider;
 import net.minecraft.client.item.ModelPredicateProviderRegistry;
 import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.block.entity.BlockEntityRendererFactories;
+import net.minecraft.client.util.ModelIdentifier;
 import net.minecraft.util.Identifier;
 
 @Environment(EnvType.CLIENT)
@@ -23,9 +27,18 @@ public class RenderInit {
         BlockRenderLayerMap.INSTANCE.putBlock(BlockInit.DUNGEON_GATE, RenderLayer.getCutout());
 
         BlockEntityRendererFactories.register(BlockInit.DUNGEON_PORTAL_ENTITY, DungeonPortalRenderer::new);
+        WorldRenderEvents.START.register(context -> DungeonPortalRenderer.nextFrame());
         BlockEntityRendererFactories.register(BlockInit.DUNGEON_SPAWNER_ENTITY, DungeonSpawnerRenderer::new);
         BlockEntityRendererFactories.register(BlockInit.DUNGEON_GATE_ENTITY, DungeonGateRenderer::new);
 
+        ModelLoadingPlugin.register(pluginContext -> pluginContext.modifyModelAfterBake().register((model, context) -> {
+            if (context.id() instanceof ModelIdentifier modelIdentifier && modelIdentifier.getNamespace().equals("dungeonz") && modelIdentifier.getPath().equals("dungeon_gate")
+                    && !modelIdentifier.getVariant().equals("inventory")) {
+                return new DungeonGateBakedModel(model);
+            }
+            return model;
+        }));
+
         HandledScreens.register(BlockInit.PORTAL, DungeonPortalScreen::new);
 
         ModelPredicateProviderRegistry.register(ItemInit.DUNGEON_COMPASS, new Identifier("angle"), new CompassAnglePredicateProvider((world, stack, entity) -> {
@@ -2,6 +2,7 @@ package net.dungeonz.item;
 
 import java.util.List;
 
+import net.dungeonz.dungeon.DungeonLocator;
 import net.dungeonz.init.ItemInit;
 import net.dungeonz.network.DungeonServerPacket;
 import net.minecraft.block.Blocks;
@@ -12,13 +13,10 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.item.ItemUsageContext;
 import net.minecraft.item.Vanishable;
 import net.minecraft.nbt.NbtCompound;
-import net.minecraft.registry.RegistryKeys;
-import net.minecraft.registry.tag.TagKey;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.Text;
 import net.minecraft.util.ActionResult;
-import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.GlobalPos;
 import net.minecraft.world.World;
@@ -38,7 +36,8 @@ public class DungeonCompassItem extends Item implements Vanishable {
         if (world.isClient) {
             return;
         }
-        if (hasDungeon(stack) && world.getTime() % 100 == 0 && !hasDungeonStructure(stack)) {
+        // The search runs in the background, so poll for its result
+        if (hasDungeon(stack) && world.getTime() % 20 == 0 && !hasDungeonStructure(stack)) {
             setCompassDungeonStructure((ServerWorld) world, entity.getBlockPos(), stack, stack.getNbt().getString(DUNGEON_TYPE_KEY));
         }
     }
@@ -90,7 +89,7 @@ public class DungeonCompassItem extends Item implements Vanishable {
             NbtCompound nbt = itemStack.getOrCreateNbt();
 
             nbt.putString(DUNGEON_TYPE_KEY, dungeonType);
-            BlockPos structurePos = getDungeonStructurePos(world, dungeonType, playerPos);
+            BlockPos structurePos = DungeonLocator.locate(world, dungeonType, playerPos);
             if (structurePos != null) {
                 nbt.putInt(DUNGEON_POS_KEY + "X", structurePos.getX());
                 nbt.putInt(DUNGEON_POS_KEY + "Y", structurePos.getY());
@@ -104,11 +103,6 @@ public class DungeonCompassItem extends Item implements Vanishable {
         }
     }
 
-    @Nullable
-    private static BlockPos getDungeonStructurePos(ServerWorld world, String dungeonType, BlockPos playerPos) {
-        return world.locateStructure(TagKey.of(RegistryKeys.STRUCTURE, new Identifier("dungeonz", dungeonType)), playerPos, 100, false);
-    }
-
     @Override
     public void appendTooltip(ItemStack stack, World world, List<Text> tooltip, TooltipContext context) {
         super.appendTooltip(stack, world, tooltip, context);
@@ -7,7 +7,9 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import net.dungeonz.access.BossEntityAccess;
+import net.dungeonz.access.DungeonMobAccess;
 import net.dungeonz.block.entity.DungeonPortalEntity;
+import net.dungeonz.dungeon.DungeonEntityTracker;
 import net.dungeonz.init.BlockInit;
 import net.minecraft.entity.EntityType;
 import net.minecraft.entity.LivingEntity;
@@ -22,7 +24,7 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
 @Mixin(MobEntity.class)
-public abstract class MobEntityMixin extends LivingEntity implements BossEntityAccess {
+public abstract class MobEntityMixin extends LivingEntity implements BossEntityAccess, DungeonMobAccess {
 
     @Unique
     private boolean isDungeonBossEntity = false;
@@ -30,6 +32,10 @@ public abstract class MobEntityMixin extends LivingEntity implements BossEntityA
     private BlockPos portalPos = new BlockPos(0, 0, 0);
     @Unique
     private String worldRegistryKey = "";
+    @Unique
+    private int instanceIndex = 0;
+    @Unique
+    private long dungeonRoomKey = DungeonEntityTracker.NO_ROOM;
 
     public MobEntityMixin(EntityType<? extends LivingEntity> entityType, World world) {
         super(entityType, world);
@@ -43,6 +49,10 @@ public abstract class MobEntityMixin extends LivingEntity implements BossEntityA
             nbt.putInt("PortalPosX", this.portalPos.getX());
             nbt.putInt("PortalPosY", this.portalPos.getY());
             nbt.putInt("PortalPosZ", this.portalPos.getZ());
+            nbt.putInt("InstanceIndex", this.instanceIndex);
+        }
+        if (this.dungeonRoomKey != DungeonEntityTracker.NO_ROOM) {
+            nbt.putLong("DungeonRoomKey", this.dungeonRoomKey);
         }
     }
 
@@ -52,6 +62,10 @@ public abstract class MobEntityMixin extends LivingEntity implements BossEntityA
             this.isDungeonBossEntity = nbt.getBoolean("IsDungeonBossEntity");
             this.worldRegistryKey = nbt.getString("WorldRegistryKey");
             this.portalPos = new BlockPos(nbt.getInt("PortalPosX"), nbt.getInt("PortalPosY"), nbt.getInt("PortalPosZ"));
+            this.instanceIndex = nbt.getInt("InstanceIndex");
+        }
+        if (nbt.contains("DungeonRoomKey")) {
+            this.dungeonRoomKey = nbt.getLong("DungeonRoomKey");
         }
     }
 
@@ -61,7 +75,7 @@ public abstract class MobEntityMixin extends LivingEntity implements BossEntityA
             ServerWorld nonDungeonWorld = getWorld().getServer().getWorld(RegistryKey.of(RegistryKeys.WORLD, new Identifier(this.worldRegistryKey)));
 
             if (nonDungeonWorld != null && nonDungeonWorld.getBlockEntity(this.portalPos) != null && nonDungeonWorld.getBlockEntity(this.portalPos) instanceof DungeonPortalEntity) {
-                ((DungeonPortalEntity) nonDungeonWorld.getBlockEntity(this.portalPos)).finishDungeon((ServerWorld) this.getWorld(), this.getBlockPos());
+                ((DungeonPortalEntity) nonDungeonWorld.getBlockEntity(this.portalPos)).finishDungeon((ServerWorld) this.getWorld(), this.getBlockPos(), this.instanceIndex);
             } else {
                 this.getWorld().setBlockState(this.getBlockPos(), BlockInit.DUNGEON_PORTAL.getDefaultState());
             }
@@ -72,10 +86,21 @@ public abstract class MobEntityMixin extends LivingEntity implements BossEntityA
     }
 
     @Override
-    public void setBoss(BlockPos portalPos, String worldRegistryKey) {
+    public void setBoss(BlockPos portalPos, String worldRegistryKey, int instanceIndex) {
         this.isDungeonBossEntity = true;
         this.portalPos = portalPos;
         this.worldRegistryKey = worldRegistryKey;
+        this.instanceIndex = instanceIndex;
+    }
+
+    @Override
+    public void setDungeonRoomKey(long roomKey) {
+        this.dungeonRoomKey = roomKey;
+    }
+
+    @Override
+    public long getDungeonRoomKey() {
+        return this.dungeonRoomKey;
     }
 
 }
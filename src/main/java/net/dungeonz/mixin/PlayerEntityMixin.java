@@ -5,6 +5,7 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import org.spongepowered.asm.mixin.injection.At;
 
+import net.dungeonz.dungeon.DungeonInstance;
 import net.dungeonz.init.DimensionInit;
 import net.dungeonz.util.DungeonHelper;
 import net.minecraft.entity.Entity;
@@ -44,7 +45,8 @@ public abstract class PlayerEntityMixin extends LivingEntity {
     @Override
     public boolean addStatusEffect(StatusEffectInstance effect, Entity source) {
         if (!this.getWorld().isClient() && effect.getEffectType().isBeneficial() && this.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD) {
-            if (DungeonHelper.getDungeonPortalEntity((ServerPlayerEntity) (Object) this) != null && DungeonHelper.getDungeonPortalEntity((ServerPlayerEntity) (Object) this).getDisableEffects()) {
+            DungeonInstance instance = DungeonHelper.getDungeonInstance((ServerPlayerEntity) (Object) this);
+            if (instance != null && instance.getDisableEffects()) {
                 return false;
             }
         }
@@ -9,8 +9,11 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import org.spongepowered.asm.mixin.injection.callback.LocalCapture;
 import org.spongepowered.asm.mixin.injection.At;
 
+import net.dungeonz.access.ServerPlayerAccess;
 import net.dungeonz.block.entity.DungeonPortalEntity;
 import net.dungeonz.dungeon.Dungeon;
+import net.dungeonz.dungeon.DungeonInstance;
+import net.dungeonz.dungeon.DungeonSession;
 import net.dungeonz.init.DimensionInit;
 import net.dungeonz.network.DungeonServerPacket;
 import net.dungeonz.util.DungeonHelper;
@@ -27,10 +30,12 @@ public class PlayerManagerMixin {
     @Inject(method = "onPlayerConnect", at = @At("TAIL"))
     private void onPlayerConnectMixin(ClientConnection connection, ServerPlayerEntity player, CallbackInfo info) {
         if (player.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD) {
-            if (DungeonHelper.getCurrentDungeon(player) != null && DungeonHelper.getDungeonPortalEntity(player).getDungeonPlayerUuids().contains(player.getUuid())
-                    && !DungeonHelper.getDungeonPortalEntity(player).isOnCooldown((int) player.getWorld().getTime())) {
-                Dungeon dungeon = DungeonHelper.getCurrentDungeon(player);
-                DungeonServerPacket.writeS2CDungeonInfoPacket(player, dungeon.getBreakableBlockIdList(), dungeon.getplaceableBlockIdList(), dungeon.isElytraAllowed());
+            DungeonSession dungeonSession = DungeonHelper.getDungeonSession(player);
+            DungeonInstance instance = dungeonSession != null ? dungeonSession.getInstance() : null;
+            if (dungeonSession != null && dungeonSession.getDungeon() != null && instance != null && instance.getDungeonPlayerUuids().contains(player.getUuid())
+                    && !instance.isOnCooldown((int) player.getWorld().getTime())) {
+                Dungeon dungeon = dungeonSession.getDungeon();
+                DungeonServerPacket.writeS2CDungeonInfoPacket(player, dungeon.getBreakableBlocks(), dungeon.getPlaceableBlocks(), dungeon.isElytraAllowed());
             } else {
                 DungeonHelper.teleportOutOfDungeon(player);
             }
@@ -40,12 +45,15 @@ public class PlayerManagerMixin {
     @Inject(method = "respawnPlayer", at = @At(value = "INVOKE", target = "Lnet/minecraft/server/world/ServerWorld;onPlayerRespawned(Lnet/minecraft/server/network/ServerPlayerEntity;)V"), locals = LocalCapture.CAPTURE_FAILSOFT)
     private void respawnPlayerMixin(ServerPlayerEntity oldPlayer, boolean alive, CallbackInfoReturnable<ServerPlayerEntity> info, BlockPos blockPos, float f, boolean bl, ServerWorld serverWorld,
             Optional<Vec3d> optional2, ServerWorld serverWorld2, ServerPlayerEntity serverPlayerEntity) {
-        if (!alive && oldPlayer.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD && DungeonHelper.getDungeonPortalEntity(oldPlayer) != null) {
-            DungeonPortalEntity dungeonPortalEntity = DungeonHelper.getDungeonPortalEntity(oldPlayer);
-            dungeonPortalEntity.getDungeonPlayerUuids().remove(oldPlayer.getUuid());
-            dungeonPortalEntity.addDeadDungeonPlayerUuids(serverPlayerEntity.getUuid());
-            if (dungeonPortalEntity.getDungeonPlayerCount() == 0) {
-                dungeonPortalEntity.setCooldownTime(dungeonPortalEntity.getDungeon().getCooldown() + (int) serverWorld.getTime());
+        if (!alive && oldPlayer.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD && DungeonHelper.getDungeonInstance(oldPlayer) != null) {
+            DungeonSession dungeonSession = DungeonHelper.getDungeonSession(oldPlayer);
+            DungeonPortalEntity dungeonPortalEntity = dungeonSession.getPortalEntity();
+            DungeonInstance instance = dungeonSession.getInstance();
+            ((ServerPlayerAccess) oldPlayer).setDungeonSession(null);
+            instance.getDungeonPlayerUuids().remove(oldPlayer.getUuid());
+            instance.addDeadDungeonPlayerUuids(serverPlayerEntity.getUuid());
+            if (instance.getDungeonPlayerCount() == 0) {
+                instance.setCooldownTime(dungeonPortalEntity.getDungeon().getCooldown() + (int) serverWorld.getTime());
             }
             dungeonPortalEntity.markDirty();
         }
@@ -12,6 +12,7 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import net.dungeonz.access.ServerPlayerAccess;
+import net.dungeonz.dungeon.DungeonSession;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.registry.RegistryKey;
@@ -34,6 +35,9 @@ public abstract class ServerPlayerEntityMixin extends PlayerEntity implements Se
     private BlockPos dungeonPortalBlockPos = new BlockPos(0, 0, 0);
     private BlockPos dungeonSpawnBlockPos = new BlockPos(0, 0, 0);
     private ServerWorld oldWorld = null;
+    private int dungeonInstanceIndex = 0;
+    @Nullable
+    private DungeonSession dungeonSession = null;
 
     public ServerPlayerEntityMixin(World world, BlockPos pos, float yaw, GameProfile gameProfile) {
         super(world, pos, yaw, gameProfile);
@@ -43,6 +47,7 @@ public abstract class ServerPlayerEntityMixin extends PlayerEntity implements Se
     private void readCustomDataFromNbtMixin(NbtCompound nbt, CallbackInfo info) {
         this.dungeonPortalBlockPos = new BlockPos(nbt.getInt("DungeonPortalBlockPosX"), nbt.getInt("DungeonPortalBlockPosY"), nbt.getInt("DungeonPortalBlockPosZ"));
         this.dungeonSpawnBlockPos = new BlockPos(nbt.getInt("DungeonSpawnBlockPosX"), nbt.getInt("DungeonSpawnBlockPosY"), nbt.getInt("DungeonSpawnBlockPosZ"));
+        this.dungeonInstanceIndex = nbt.getInt("DungeonInstanceIndex");
         if (nbt.contains("DungeonRegistryKey")) {
             this.oldWorld = this.server.getWorld(RegistryKey.of(RegistryKeys.WORLD, new Identifier(nbt.getString("DungeonRegistryKey"))));
         }
@@ -57,6 +62,7 @@ public abstract class ServerPlayerEntityMixin extends PlayerEntity implements Se
         nbt.putInt("DungeonSpawnBlockPosX", this.dungeonSpawnBlockPos.getX());
         nbt.putInt("DungeonSpawnBlockPosY", this.dungeonSpawnBlockPos.getY());
         nbt.putInt("DungeonSpawnBlockPosZ", this.dungeonSpawnBlockPos.getZ());
+        nbt.putInt("DungeonInstanceIndex", this.dungeonInstanceIndex);
 
         if (this.oldWorld != null) {
             nbt.putString("DungeonRegistryKey", this.oldWorld.getRegistryKey().getValue().toString());
@@ -64,10 +70,12 @@ public abstract class ServerPlayerEntityMixin extends PlayerEntity implements Se
     }
 
     @Override
-    public void setDungeonInfo(ServerWorld world, BlockPos portalPos, BlockPos playerPos) {
+    public void setDungeonInfo(ServerWorld world, BlockPos portalPos, BlockPos playerPos, int instanceIndex) {
         this.dungeonPortalBlockPos = new BlockPos(portalPos);
         this.dungeonSpawnBlockPos = new BlockPos(playerPos);
         this.oldWorld = world;
+        this.dungeonInstanceIndex = instanceIndex;
+        this.setDungeonSession(null);
     }
 
     @Nullable
@@ -86,4 +94,23 @@ public abstract class ServerPlayerEntityMixin extends PlayerEntity implements Se
         return this.dungeonSpawnBlockPos;
     }
 
+    @Override
+    public int getDungeonInstanceIndex() {
+        return this.dungeonInstanceIndex;
+    }
+
+    @Override
+    public void setDungeonSession(@Nullable DungeonSession dungeonSession) {
+        if (this.dungeonSession != null && this.dungeonSession != dungeonSession) {
+            this.dungeonSession.close();
+        }
+        this.dungeonSession = dungeonSession;
+    }
+
+    @Nullable
+    @Override
+    public DungeonSession getDungeonSession() {
+        return this.dungeonSession;
+    }
+
 }
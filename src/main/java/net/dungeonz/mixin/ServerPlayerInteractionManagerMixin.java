@@ -9,6 +9,9 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import org.spongepowered.asm.mixin.injection.callback.LocalCapture;
 
+import net.dungeonz.dungeon.Dungeon;
+import net.dungeonz.dungeon.DungeonInstance;
+import net.dungeonz.dungeon.DungeonSession;
 import net.dungeonz.init.DimensionInit;
 import net.dungeonz.util.DungeonHelper;
 import net.minecraft.block.BlockState;
@@ -16,7 +19,6 @@ import net.minecraft.block.Blocks;
 import net.minecraft.item.BlockItem;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.ItemUsageContext;
-import net.minecraft.registry.Registries;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.network.ServerPlayerInteractionManager;
 import net.minecraft.util.ActionResult;
@@ -48,13 +50,15 @@ public class ServerPlayerInteractionManagerMixin {
     @Inject(method = "tryBreakBlock", at = @At(value = "INVOKE", target = "Lnet/minecraft/block/Block;onBreak(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;Lnet/minecraft/entity/player/PlayerEntity;)V"), cancellable = true)
     private void tryBreakBlockMixin(BlockPos pos, CallbackInfoReturnable<Boolean> info) {
         if (!player.getWorld().isClient() && player.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD) {
-            if (!player.isCreative() && DungeonHelper.getCurrentDungeon(player) != null
-                    && !DungeonHelper.getCurrentDungeon(player).getBreakableBlockIdList().contains(Registries.BLOCK.getRawId(player.getWorld().getBlockState(pos).getBlock()))) {
+            DungeonSession dungeonSession = DungeonHelper.getDungeonSession(player);
+            Dungeon dungeon = dungeonSession != null ? dungeonSession.getDungeon() : null;
+            if (!player.isCreative() && dungeon != null && !dungeon.isBreakable(player.getWorld().getBlockState(pos).getBlock())) {
                 info.setReturnValue(false);
-            } else {
-                if (DungeonHelper.getDungeonPortalEntity(player) != null && !DungeonHelper.getDungeonPortalEntity(player).getReplaceBlockIdMap().containsKey(pos)) {
-                    DungeonHelper.getDungeonPortalEntity(player).addReplaceBlockId(pos, player.getWorld().getBlockState(pos).getBlock());
-                    DungeonHelper.getDungeonPortalEntity(player).markDirty();
+            } else if (dungeonSession != null && dungeonSession.getInstance() != null) {
+                DungeonInstance instance = dungeonSession.getInstance();
+                if (!instance.getReplaceBlockIdMap().containsKey(pos)) {
+                    instance.addReplaceBlockId(pos, player.getWorld().getBlockState(pos).getBlock());
+                    dungeonSession.getPortalEntity().markDirty();
                 }
             }
         }
@@ -64,13 +68,15 @@ public class ServerPlayerInteractionManagerMixin {
     private void interactBlockMixin(ServerPlayerEntity player, World world, ItemStack stack, Hand hand, BlockHitResult hitResult, CallbackInfoReturnable<ActionResult> info, BlockPos blockPos,
             BlockState blockState, boolean bl, boolean bl2, ItemStack itemStack, ItemUsageContext itemUsageContext) {
         if (world.getRegistryKey() == DimensionInit.DUNGEON_WORLD && !player.isCreative() && stack.getItem() instanceof BlockItem) {
-            if (DungeonHelper.getCurrentDungeon(player) != null) {
-                if (!DungeonHelper.getCurrentDungeon(player).getplaceableBlockIdList().contains(Registries.BLOCK.getRawId(((BlockItem) stack.getItem()).getBlock()))) {
+            DungeonSession dungeonSession = DungeonHelper.getDungeonSession(player);
+            if (dungeonSession != null && dungeonSession.getDungeon() != null) {
+                if (!dungeonSession.getDungeon().isPlaceable(((BlockItem) stack.getItem()).getBlock())) {
                     info.setReturnValue(ActionResult.PASS);
-                } else if (DungeonHelper.getDungeonPortalEntity(player) != null) {
-                    if (!DungeonHelper.getDungeonPortalEntity(player).getReplaceBlockIdMap().containsKey(itemUsageContext.getBlockPos().offset(itemUsageContext.getSide()))) {
-                        DungeonHelper.getDungeonPortalEntity(player).addReplaceBlockId(itemUsageContext.getBlockPos().offset(itemUsageContext.getSide()), Blocks.AIR);
-                        DungeonHelper.getDungeonPortalEntity(player).markDirty();
+                } else if (dungeonSession.getInstance() != null) {
+                    DungeonInstance instance = dungeonSession.getInstance();
+                    if (!instance.getReplaceBlockIdMap().containsKey(itemUsageContext.getBlockPos().offset(itemUsageContext.getSide()))) {
+                        instance.addReplaceBlockId(itemUsageContext.getBlockPos().offset(itemUsageContext.getSide()), Blocks.AIR);
+                        dungeonSession.getPortalEntity().markDirty();
                     }
                 }
             }
@@ -0,0 +1,25 @@
+package net.dungeonz.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+import net.dungeonz.access.SpawnerTrackerAccess;
+import net.dungeonz.dungeon.DungeonSpawnerTracker;
+import net.minecraft.world.World;
+
+@Mixin(World.class)
+public class WorldMixin implements SpawnerTrackerAccess {
+
+    // Lives and dies with its world
+    @Unique
+    private DungeonSpawnerTracker dungeonSpawnerTracker = null;
+
+    @Override
+    public DungeonSpawnerTracker getDungeonSpawnerTracker() {
+        if (this.dungeonSpawnerTracker == null) {
+            this.dungeonSpawnerTracker = new DungeonSpawnerTracker();
+        }
+        return this.dungeonSpawnerTracker;
+    }
+
+}
@@ -0,0 +1,22 @@
+package net.dungeonz.mixin.access;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+import com.mojang.datafixers.util.Either;
+
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.structure.StructureTemplate;
+import net.minecraft.structure.pool.SinglePoolElement;
+import net.minecraft.structure.processor.StructureProcessorList;
+import net.minecraft.util.Identifier;
+
+@Mixin(SinglePoolElement.class)
+public interface SinglePoolElementAccessor {
+
+    @Accessor("location")
+    Either<Identifier, StructureTemplate> getLocation();
+
+    @Accessor("processors")
+    RegistryEntry<StructureProcessorList> getProcessors();
+}
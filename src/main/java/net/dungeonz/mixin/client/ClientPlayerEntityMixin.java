@@ -1,7 +1,6 @@
 package net.dungeonz.mixin.client;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
 
 import org.spongepowered.asm.mixin.Mixin;
 
@@ -14,26 +13,26 @@ import net.minecraft.client.network.ClientPlayerEntity;
 @Mixin(ClientPlayerEntity.class)
 public class ClientPlayerEntityMixin implements ClientPlayerAccess {
 
-    private List<Integer> breakableBlockIdList = new ArrayList<Integer>();
-    private List<Integer> placeableBlockIdList = new ArrayList<Integer>();
+    private BitSet breakableBlocks = new BitSet();
+    private BitSet placeableBlocks = new BitSet();
     private boolean allowElytra = false;
 
     @Override
-    public void setClientDungeonInfo(List<Integer> breakableBlockIdList, List<Integer> placeableBlockIdList, boolean allowElytra) {
+    public void setClientDungeonInfo(BitSet breakableBlocks, BitSet placeableBlocks, boolean allowElytra) {
 
-        this.breakableBlockIdList = breakableBlockIdList;
-        this.placeableBlockIdList = placeableBlockIdList;
+        this.breakableBlocks = breakableBlocks;
+        this.placeableBlocks = placeableBlocks;
         this.allowElytra = allowElytra;
     }
 
     @Override
-    public List<Integer> getBreakableBlockIdList() {
-        return this.breakableBlockIdList;
+    public BitSet getBreakableBlocks() {
+        return this.breakableBlocks;
     }
 
     @Override
-    public List<Integer> getPlaceableBlockIdList() {
-        return this.placeableBlockIdList;
+    public BitSet getPlaceableBlocks() {
+        return this.placeableBlocks;
     }
 
     @Override
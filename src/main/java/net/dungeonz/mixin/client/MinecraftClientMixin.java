@@ -36,7 +36,7 @@ public class MinecraftClientMixin {
     @Inject(method = "doItemUse", at = @At(value = "INVOKE", target = "Lnet/minecraft/item/ItemStack;getCount()I"), cancellable = true, locals = LocalCapture.CAPTURE_FAILSOFT)
     private void doItemUseMixin(CallbackInfo info, Hand[] var1, int var2, int var3, Hand hand, ItemStack itemStack) {
         if (player != null && !player.isCreative() && itemStack.getItem() instanceof BlockItem && player.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD
-                && !((ClientPlayerAccess) player).getPlaceableBlockIdList().contains(Registries.BLOCK.getRawId(((BlockItem) itemStack.getItem()).getBlock()))) {
+                && !((ClientPlayerAccess) player).getPlaceableBlocks().get(Registries.BLOCK.getRawId(((BlockItem) itemStack.getItem()).getBlock()))) {
             info.cancel();
         }
     }
@@ -44,7 +44,7 @@ public class MinecraftClientMixin {
     @Inject(method = "handleBlockBreaking", at = @At(value = "INVOKE", target = "Lnet/minecraft/util/hit/BlockHitResult;getSide()Lnet/minecraft/util/math/Direction;"), cancellable = true, locals = LocalCapture.CAPTURE_FAILSOFT)
     private void handleBlockBreakingMixin(boolean bl, CallbackInfo info, BlockHitResult blockHitResult, BlockPos blockPos) {
         if (player != null && !player.isCreative() && player.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD
-                && !((ClientPlayerAccess) player).getBreakableBlockIdList().contains(Registries.BLOCK.getRawId(player.getWorld().getBlockState(blockPos).getBlock()))) {
+                && !((ClientPlayerAccess) player).getBreakableBlocks().get(Registries.BLOCK.getRawId(player.getWorld().getBlockState(blockPos).getBlock()))) {
             interactionManager.cancelBlockBreaking();
             info.cancel();
         }
@@ -1,6 +1,7 @@
 package net.dungeonz.network;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.UUID;
 
@@ -21,7 +22,7 @@ import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.network.packet.c2s.play.CustomPayloadC2SPacket;
-import net.minecraft.text.Text;
+import net.minecraft.registry.Registries;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 
@@ -30,27 +31,60 @@ public class DungeonClientPacket {
 
     public static void init() {
         ClientPlayNetworking.registerGlobalReceiver(DungeonServerPacket.DUNGEON_INFO_PACKET, (client, handler, buf, sender) -> {
-            List<Integer> breakableBlockIdList = buf.readIntList();
-            List<Integer> placeableBlockIdList = buf.readIntList();
+            BitSet breakableBlocks = buf.readBitSet();
+            BitSet placeableBlocks = buf.readBitSet();
             boolean allowElytra = buf.readBoolean();
             client.execute(() -> {
-                ((ClientPlayerAccess) client.player).setClientDungeonInfo(breakableBlockIdList, placeableBlockIdList, allowElytra);
+                ((ClientPlayerAccess) client.player).setClientDungeonInfo(breakableBlocks, placeableBlocks, allowElytra);
             });
         });
         ClientPlayNetworking.registerGlobalReceiver(DungeonServerPacket.SYNC_SCREEN_PACKET, (client, handler, buf, sender) -> {
-            BlockPos dungeonPortalPos = buf.readBlockPos();
-            String difficulty = buf.readString();
+            int syncId = buf.readVarInt();
+            int screenVersion = buf.readVarInt();
+            int changes = buf.readByte();
+            List<UUID> joinedUuids = (changes & DungeonPortalScreenHandler.DELTA_PLAYERS) != 0 ? buf.readList(PacketByteBuf::readUuid) : List.of();
+            List<UUID> leftUuids = (changes & DungeonPortalScreenHandler.DELTA_PLAYERS) != 0 ? buf.readList(PacketByteBuf::readUuid) : List.of();
+            List<UUID> diedUuids = (changes & DungeonPortalScreenHandler.DELTA_DEAD_PLAYERS) != 0 ? buf.readList(PacketByteBuf::readUuid) : List.of();
+            List<UUID> revivedUuids = (changes & DungeonPortalScreenHandler.DELTA_DEAD_PLAYERS) != 0 ? buf.readList(PacketByteBuf::readUuid) : List.of();
+            int waitingGroupSize = (changes & DungeonPortalScreenHandler.DELTA_WAITING) != 0 ? buf.readVarInt() : 0;
+            int cooldownTime = (changes & DungeonPortalScreenHandler.DELTA_COOLDOWN) != 0 ? buf.readInt() : 0;
+            String difficulty = (changes & DungeonPortalScreenHandler.DELTA_DIFFICULTY) != 0 ? buf.readString() : "";
+            boolean disableEffects = (changes & DungeonPortalScreenHandler.DELTA_TOGGLES) != 0 ? buf.readBoolean() : false;
+            boolean privateGroup = (changes & DungeonPortalScreenHandler.DELTA_TOGGLES) != 0 ? buf.readBoolean() : false;
+            int maxGroupSize = (changes & DungeonPortalScreenHandler.DELTA_GROUP_SIZE) != 0 ? buf.readVarInt() : 0;
+            int minGroupSize = (changes & DungeonPortalScreenHandler.DELTA_GROUP_SIZE) != 0 ? buf.readVarInt() : 0;
 
             client.execute(() -> {
-                if (client.world.getBlockEntity(dungeonPortalPos) != null && client.world.getBlockEntity(dungeonPortalPos) instanceof DungeonPortalEntity) {
-                    DungeonPortalEntity dungeonPortalEntity = (DungeonPortalEntity) client.world.getBlockEntity(dungeonPortalPos);
-                    dungeonPortalEntity.setDifficulty(difficulty);
-
-                    if (client.currentScreen instanceof DungeonPortalScreen) {
-                        ((DungeonPortalScreen) client.currentScreen).difficultyButton.setText(Text.translatable("dungeonz.difficulty." + difficulty));
+                if (client.player.currentScreenHandler instanceof DungeonPortalScreenHandler dungeonPortalScreenHandler && dungeonPortalScreenHandler.syncId == syncId
+                        && dungeonPortalScreenHandler.applyScreenVersion(screenVersion)) {
+                    DungeonPortalEntity dungeonPortalEntity = dungeonPortalScreenHandler.getDungeonPortalEntity();
+                    if ((changes & DungeonPortalScreenHandler.DELTA_PLAYERS) != 0) {
+                        dungeonPortalEntity.getDungeonPlayerUuids().removeAll(leftUuids);
+                        dungeonPortalEntity.getDungeonPlayerUuids().addAll(joinedUuids);
+                    }
+                    if ((changes & DungeonPortalScreenHandler.DELTA_DEAD_PLAYERS) != 0) {
+                        dungeonPortalEntity.getDeadDungeonPlayerUUIDs().removeAll(revivedUuids);
+                        dungeonPortalEntity.getDeadDungeonPlayerUUIDs().addAll(diedUuids);
+                    }
+                    if ((changes & DungeonPortalScreenHandler.DELTA_WAITING) != 0) {
+                        dungeonPortalScreenHandler.setWaitingGroupSize(waitingGroupSize);
+                    }
+                    if ((changes & DungeonPortalScreenHandler.DELTA_COOLDOWN) != 0) {
+                        dungeonPortalEntity.setCooldownTime(cooldownTime);
                     }
-                    if (client.player.currentScreenHandler instanceof DungeonPortalScreenHandler) {
-                        ((DungeonPortalScreenHandler) client.player.currentScreenHandler).getDungeonPortalEntity().setDifficulty(difficulty);
+                    if ((changes & DungeonPortalScreenHandler.DELTA_DIFFICULTY) != 0) {
+                        dungeonPortalEntity.setDifficulty(difficulty);
+                    }
+                    if ((changes & DungeonPortalScreenHandler.DELTA_TOGGLES) != 0) {
+                        dungeonPortalEntity.setDisableEffects(disableEffects);
+                        dungeonPortalEntity.setPrivateGroup(privateGroup);
+                    }
+                    if ((changes & DungeonPortalScreenHandler.DELTA_GROUP_SIZE) != 0) {
+                        dungeonPortalEntity.setMaxGroupSize(maxGroupSize);
+                        dungeonPortalEntity.setMinGroupSize(minGroupSize);
+                    }
+                    if (client.currentScreen instanceof DungeonPortalScreen dungeonPortalScreen) {
+                        dungeonPortalScreen.updateScreenState();
                     }
                 }
             });
@@ -91,20 +125,17 @@ public class DungeonClientPacket {
             });
         });
         ClientPlayNetworking.registerGlobalReceiver(DungeonServerPacket.SYNC_GATE_BLOCK_PACKET, (client, handler, buf, sender) -> {
-            int posListSize = buf.readInt();
-            List<BlockPos> dungeonGatesPosList = new ArrayList<BlockPos>();
-            for (int i = 0; i < posListSize; i++) {
-                dungeonGatesPosList.add(buf.readBlockPos());
-            }
-            String blockId = buf.readString();
+            List<BlockPos> dungeonGatesPosList = DungeonServerPacket.readBlockPosList(buf);
+            Identifier blockId = Registries.BLOCK.getId(Registries.BLOCK.get(buf.readVarInt()));
             String particleId = buf.readString();
-            String unlockItemId = buf.readString();
+            int unlockItemRawId = buf.readVarInt();
+            String unlockItemId = unlockItemRawId != -1 ? Registries.ITEM.getId(Registries.ITEM.get(unlockItemRawId)).toString() : "";
 
             client.execute(() -> {
                 for (int i = 0; i < dungeonGatesPosList.size(); i++) {
                     if (client.world.getBlockEntity(dungeonGatesPosList.get(i)) != null && client.world.getBlockEntity(dungeonGatesPosList.get(i)) instanceof DungeonGateEntity) {
                         DungeonGateEntity dungeonGateEntity = (DungeonGateEntity) client.world.getBlockEntity(dungeonGatesPosList.get(i));
-                        dungeonGateEntity.setBlockId(new Identifier(blockId));
+                        dungeonGateEntity.setBlockId(blockId);
                         dungeonGateEntity.setParticleEffectId(particleId);
                         dungeonGateEntity.setUnlockItemId(unlockItemId);
                     }
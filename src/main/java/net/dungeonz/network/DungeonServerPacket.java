@@ -1,15 +1,22 @@
 package net.dungeonz.network;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.Map.Entry;
 
 import org.jetbrains.annotations.Nullable;
 
 import io.netty.buffer.Unpooled;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
 import net.dungeonz.DungeonzMain;
 import net.dungeonz.block.entity.DungeonGateEntity;
 import net.dungeonz.block.entity.DungeonPortalEntity;
+import net.dungeonz.block.screen.DungeonPortalScreenHandler;
 import net.dungeonz.dungeon.Dungeon;
 import net.dungeonz.init.ItemInit;
 import net.dungeonz.item.DungeonCompassItem;
@@ -19,6 +26,7 @@ import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.network.packet.s2c.play.CustomPayloadS2CPacket;
 import net.minecraft.registry.Registries;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.Text;
@@ -44,6 +52,8 @@ public class DungeonServerPacket {
     public static final Identifier OP_SCREEN_PACKET = new Identifier("dungeonz", "op_screen");
     public static final Identifier COMPASS_SCREEN_PACKET = new Identifier("dungeonz", "compass_screen");
 
+    private static final Map<UUID, Map<String, CustomPayloadS2CPacket>> PENDING_PACKETS = new HashMap<UUID, Map<String, CustomPayloadS2CPacket>>();
+
     public static void init() {
         ServerPlayNetworking.registerGlobalReceiver(CHANGE_DUNGEON_DIFFICULTY_PACKET, (server, player, handler, buffer, sender) -> {
             BlockPos dungeonPortalPos = buffer.readBlockPos();
@@ -63,7 +73,6 @@ public class DungeonServerPacket {
                             dungeonPortalEntity.setDifficulty(difficulties.get(index));
                         }
                         dungeonPortalEntity.markDirty();
-                        writeS2CSyncScreenPacket(player, dungeonPortalEntity);
                     }
                 }
             });
@@ -167,19 +176,48 @@ public class DungeonServerPacket {
         });
     }
 
-    public static void writeS2CDungeonInfoPacket(ServerPlayerEntity serverPlayerEntity, List<Integer> breakableBlockIdList, List<Integer> placeableBlockIdList, boolean allowElytra) {
+    public static void writeS2CDungeonInfoPacket(ServerPlayerEntity serverPlayerEntity, BitSet breakableBlocks, BitSet placeableBlocks, boolean allowElytra) {
         PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
-        buf.writeIntList(new IntArrayList(breakableBlockIdList));
-        buf.writeIntList(new IntArrayList(placeableBlockIdList));
+        buf.writeBitSet(breakableBlocks);
+        buf.writeBitSet(placeableBlocks);
         buf.writeBoolean(allowElytra);
-        CustomPayloadS2CPacket packet = new CustomPayloadS2CPacket(DUNGEON_INFO_PACKET, buf);
-        serverPlayerEntity.networkHandler.sendPacket(packet);
+        // Entering a dungeon may send it again in the same tick, only the last one matters
+        sendCoalesced(serverPlayerEntity, DUNGEON_INFO_PACKET.toString(), new CustomPayloadS2CPacket(DUNGEON_INFO_PACKET, buf));
     }
 
-    public static void writeS2CSyncScreenPacket(ServerPlayerEntity serverPlayerEntity, DungeonPortalEntity dungeonPortalEntity) {
+    // Only the changed parts of the portal screen state, player lists as joined and left uuids
+    public static void writeS2CSyncScreenPacket(ServerPlayerEntity serverPlayerEntity, int syncId, int screenVersion, int changes, List<UUID> joinedUuids, List<UUID> leftUuids,
+            List<UUID> diedUuids, List<UUID> revivedUuids, int waitingGroupSize, int cooldownTime, String difficulty, boolean disableEffects, boolean privateGroup, int maxGroupSize,
+            int minGroupSize) {
         PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
-        buf.writeBlockPos(dungeonPortalEntity.getPos());
-        buf.writeString(dungeonPortalEntity.getDifficulty());
+        buf.writeVarInt(syncId);
+        buf.writeVarInt(screenVersion);
+        buf.writeByte(changes);
+        if ((changes & DungeonPortalScreenHandler.DELTA_PLAYERS) != 0) {
+            buf.writeCollection(joinedUuids, PacketByteBuf::writeUuid);
+            buf.writeCollection(leftUuids, PacketByteBuf::writeUuid);
+        }
+        if ((changes & DungeonPortalScreenHandler.DELTA_DEAD_PLAYERS) != 0) {
+            buf.writeCollection(diedUuids, PacketByteBuf::writeUuid);
+            buf.writeCollection(revivedUuids, PacketByteBuf::writeUuid);
+        }
+        if ((changes & DungeonPortalScreenHandler.DELTA_WAITING) != 0) {
+            buf.writeVarInt(waitingGroupSize);
+        }
+        if ((changes & DungeonPortalScreenHandler.DELTA_COOLDOWN) != 0) {
+            buf.writeInt(cooldownTime);
+        }
+        if ((changes & DungeonPortalScreenHandler.DELTA_DIFFICULTY) != 0) {
+            buf.writeString(difficulty);
+        }
+        if ((changes & DungeonPortalScreenHandler.DELTA_TOGGLES) != 0) {
+            buf.writeBoolean(disableEffects);
+            buf.writeBoolean(privateGroup);
+        }
+        if ((changes & DungeonPortalScreenHandler.DELTA_GROUP_SIZE) != 0) {
+            buf.writeVarInt(maxGroupSize);
+            buf.writeVarInt(minGroupSize);
+        }
 
         CustomPayloadS2CPacket packet = new CustomPayloadS2CPacket(SYNC_SCREEN_PACKET, buf);
         serverPlayerEntity.networkHandler.sendPacket(packet);
@@ -207,10 +245,10 @@ public class DungeonServerPacket {
     public static void writeS2COpenCompassScreenPacket(ServerPlayerEntity serverPlayerEntity, String dungeonType) {
         PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
         buf.writeString(dungeonType);
-        int dungeonCount = DungeonzMain.DUNGEONS.size();
-        buf.writeInt(dungeonCount);
-        for (int i = 0; i < dungeonCount; i++) {
-            buf.writeString(DungeonzMain.DUNGEONS.get(i).getDungeonTypeId());
+        List<Dungeon> dungeons = DungeonzMain.DUNGEONS;
+        buf.writeInt(dungeons.size());
+        for (int i = 0; i < dungeons.size(); i++) {
+            buf.writeString(dungeons.get(i).getDungeonTypeId());
         }
         CustomPayloadS2CPacket packet = new CustomPayloadS2CPacket(COMPASS_SCREEN_PACKET, buf);
         serverPlayerEntity.networkHandler.sendPacket(packet);
@@ -218,16 +256,86 @@ public class DungeonServerPacket {
 
     public static void writeS2CSyncGatePacket(ServerPlayerEntity serverPlayerEntity, DungeonGateEntity dungeonGateEntity, List<BlockPos> dungeonGatesPosList) {
         PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
-        buf.writeInt(dungeonGatesPosList.size());
-        for (int i = 0; i < dungeonGatesPosList.size(); i++) {
-            buf.writeBlockPos(dungeonGatesPosList.get(i));
-        }
-        buf.writeString(Registries.BLOCK.getId(dungeonGateEntity.getBlockState().getBlock()).toString());
+        writeBlockPosList(buf, dungeonGatesPosList);
+        buf.writeVarInt(Registries.BLOCK.getRawId(dungeonGateEntity.getBlockState().getBlock()));
+        // Particle effects may carry parameters, so they stay a string
         buf.writeString(dungeonGateEntity.getParticleEffect() != null ? dungeonGateEntity.getParticleEffect().asString() : "");
-        buf.writeString(dungeonGateEntity.getUnlockItem() != null ? Registries.ITEM.getId(dungeonGateEntity.getUnlockItem()).toString() : "");
+        buf.writeVarInt(dungeonGateEntity.getUnlockItem() != null ? Registries.ITEM.getRawId(dungeonGateEntity.getUnlockItem()) : -1);
 
-        CustomPayloadS2CPacket packet = new CustomPayloadS2CPacket(SYNC_GATE_BLOCK_PACKET, buf);
-        serverPlayerEntity.networkHandler.sendPacket(packet);
+        sendCoalesced(serverPlayerEntity, SYNC_GATE_BLOCK_PACKET + "|" + dungeonGateEntity.getPos().asLong(), new CustomPayloadS2CPacket(SYNC_GATE_BLOCK_PACKET, buf));
+    }
+
+    // The first position followed by zigzag encoded deltas to the previous one, neighboring positions take three bytes
+    public static void writeBlockPosList(PacketByteBuf buf, List<BlockPos> posList) {
+        buf.writeVarInt(posList.size());
+        BlockPos lastPos = null;
+        for (int i = 0; i < posList.size(); i++) {
+            BlockPos pos = posList.get(i);
+            if (lastPos == null) {
+                buf.writeBlockPos(pos);
+            } else {
+                buf.writeVarInt(zigzag(pos.getX() - lastPos.getX()));
+                buf.writeVarInt(zigzag(pos.getY() - lastPos.getY()));
+                buf.writeVarInt(zigzag(pos.getZ() - lastPos.getZ()));
+            }
+            lastPos = pos;
+        }
+    }
+
+    public static List<BlockPos> readBlockPosList(PacketByteBuf buf) {
+        int size = buf.readVarInt();
+        List<BlockPos> posList = new ArrayList<BlockPos>(size);
+        BlockPos lastPos = null;
+        for (int i = 0; i < size; i++) {
+            if (lastPos == null) {
+                lastPos = buf.readBlockPos();
+            } else {
+                lastPos = lastPos.add(unzigzag(buf.readVarInt()), unzigzag(buf.readVarInt()), unzigzag(buf.readVarInt()));
+            }
+            posList.add(lastPos);
+        }
+        return posList;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Replaces a packet with the same key queued this tick, everything queued gets sent at the end of the tick
+    private static void sendCoalesced(ServerPlayerEntity serverPlayerEntity, String key, CustomPayloadS2CPacket packet) {
+        Map<String, CustomPayloadS2CPacket> packets = PENDING_PACKETS.get(serverPlayerEntity.getUuid());
+        if (packets == null) {
+            packets = new LinkedHashMap<String, CustomPayloadS2CPacket>();
+            PENDING_PACKETS.put(serverPlayerEntity.getUuid(), packets);
+        }
+        packets.remove(key);
+        packets.put(key, packet);
+    }
+
+    public static void tick(MinecraftServer server) {
+        if (PENDING_PACKETS.isEmpty()) {
+            return;
+        }
+        Iterator<Entry<UUID, Map<String, CustomPayloadS2CPacket>>> iterator = PENDING_PACKETS.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<UUID, Map<String, CustomPayloadS2CPacket>> entry = iterator.next();
+            // Looked up again since the player entity gets replaced on respawn and dimension changes
+            ServerPlayerEntity serverPlayerEntity = server.getPlayerManager().getPlayer(entry.getKey());
+            if (serverPlayerEntity != null) {
+                for (CustomPayloadS2CPacket packet : entry.getValue().values()) {
+                    serverPlayerEntity.networkHandler.sendPacket(packet);
+                }
+            }
+        }
+        PENDING_PACKETS.clear();
+    }
+
+    public static void clear() {
+        PENDING_PACKETS.clear();
     }
 
 }
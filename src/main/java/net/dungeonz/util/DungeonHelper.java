@@ -1,12 +1,8 @@
 package net.dungeonz.util;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.Map.Entry;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -14,25 +10,20 @@ import net.dungeonz.DungeonzMain;
 import net.dungeonz.access.ServerPlayerAccess;
 import net.dungeonz.block.entity.DungeonPortalEntity;
 import net.dungeonz.dungeon.Dungeon;
+import net.dungeonz.dungeon.DungeonInstance;
+import net.dungeonz.dungeon.DungeonLootPreview;
 import net.dungeonz.dungeon.DungeonPlacementHandler;
+import net.dungeonz.dungeon.DungeonSession;
 import net.dungeonz.init.DimensionInit;
 import net.dungeonz.network.DungeonServerPacket;
 import net.fabricmc.fabric.api.dimension.v1.FabricDimensions;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.entity.player.PlayerEntity;
-import net.minecraft.inventory.Inventory;
-import net.minecraft.inventory.SimpleInventory;
 import net.minecraft.item.ItemStack;
-import net.minecraft.loot.LootTable;
-import net.minecraft.loot.context.LootContextParameterSet;
-import net.minecraft.loot.context.LootContextParameters;
-import net.minecraft.loot.context.LootContextTypes;
-import net.minecraft.registry.Registries;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.Text;
-import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.TeleportTarget;
@@ -43,13 +34,10 @@ public class DungeonHelper {
 
     @Nullable
     public static Dungeon getCurrentDungeon(ServerPlayerEntity playerEntity) {
-        if (playerEntity.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD && ((ServerPlayerAccess) playerEntity).getOldServerWorld() != null) {
-            BlockEntity blockEntity = ((ServerPlayerAccess) playerEntity).getOldServerWorld().getBlockEntity(((ServerPlayerAccess) playerEntity).getDungeonPortalBlockPos());
-            if (blockEntity == null) {
-                return null;
-            }
-            if (blockEntity instanceof DungeonPortalEntity) {
-                return ((DungeonPortalEntity) blockEntity).getDungeon();
+        if (playerEntity.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD) {
+            DungeonSession dungeonSession = getDungeonSession(playerEntity);
+            if (dungeonSession != null) {
+                return dungeonSession.getDungeon();
             }
         }
         return null;
@@ -57,61 +45,52 @@ public class DungeonHelper {
 
     @Nullable
     public static DungeonPortalEntity getDungeonPortalEntity(ServerPlayerEntity playerEntity) {
-        if (((ServerPlayerAccess) playerEntity).getOldServerWorld() != null) {
-            BlockEntity blockEntity = ((ServerPlayerAccess) playerEntity).getOldServerWorld().getBlockEntity(((ServerPlayerAccess) playerEntity).getDungeonPortalBlockPos());
-            if (blockEntity == null) {
-                return null;
-            }
-            if (blockEntity instanceof DungeonPortalEntity) {
-                return (DungeonPortalEntity) blockEntity;
+        if (playerEntity.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD) {
+            DungeonSession dungeonSession = getDungeonSession(playerEntity);
+            if (dungeonSession != null) {
+                return dungeonSession.getPortalEntity();
             }
         }
         return null;
     }
 
-    public static List<ItemStack> getRequiredItemStackList(Dungeon dungeon) {
-        List<ItemStack> requiredItemStackList = new ArrayList<ItemStack>();
-        Iterator<Entry<Integer, Integer>> requiredItemIterator = dungeon.getRequiredItemCountMap().entrySet().iterator();
-        while (requiredItemIterator.hasNext()) {
-            Entry<Integer, Integer> entry = requiredItemIterator.next();
-            requiredItemStackList.add(new ItemStack(Registries.ITEM.get(entry.getKey()), entry.getValue()));
+    @Nullable
+    public static DungeonInstance getDungeonInstance(ServerPlayerEntity playerEntity) {
+        if (playerEntity.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD) {
+            DungeonSession dungeonSession = getDungeonSession(playerEntity);
+            if (dungeonSession != null) {
+                return dungeonSession.getInstance();
+            }
         }
-        return requiredItemStackList;
+        return null;
     }
 
-    public static Map<String, List<ItemStack>> getPossibleLootItemStackMap(Dungeon dungeon, MinecraftServer server) {
-        HashMap<String, List<ItemStack>> possibleLootItemStackMap = new HashMap<String, List<ItemStack>>();
-        Iterator<Entry<String, String>> lootTableIterator = dungeon.getDifficultyBossLootTableMap().entrySet().iterator();
-        while (lootTableIterator.hasNext()) {
-            Entry<String, String> entry = lootTableIterator.next();
-
-            LootTable lootTable = server.getLootManager().getLootTable(new Identifier(entry.getValue()));
-
-            LootContextParameterSet.Builder builder = new LootContextParameterSet.Builder(server.getOverworld()).add(LootContextParameters.ORIGIN,
-                    server.getOverworld().getPlayers().get(server.getOverworld().getRandom().nextInt(server.getOverworld().getPlayers().size())).getPos());
-            Inventory inventory = new SimpleInventory(27);
-            lootTable.supplyInventory(inventory, builder.build(LootContextTypes.CHEST), server.getOverworld().getRandom().nextLong());
-
-            List<ItemStack> itemStacks = new ArrayList<ItemStack>();
-            for (int i = 0; i < inventory.size(); i++) {
-                if (!inventory.getStack(i).isEmpty()) {
-                    boolean contains = false;
-                    for (int u = 0; u < itemStacks.size(); u++) {
-                        if (ItemStack.areItemsEqual(itemStacks.get(u), inventory.getStack(i))) {
-                            itemStacks.get(u).increment(inventory.getStack(i).getCount());
-                            contains = true;
-                            break;
-                        }
-                    }
-                    if (!contains) {
-                        itemStacks.add(inventory.getStack(i));
-                    }
-                }
+    // Resolves the portal once and keeps it on the player until leaving the dungeon
+    @Nullable
+    public static DungeonSession getDungeonSession(ServerPlayerEntity playerEntity) {
+        DungeonSession dungeonSession = ((ServerPlayerAccess) playerEntity).getDungeonSession();
+        if (dungeonSession != null && dungeonSession.isValid()) {
+            return dungeonSession;
+        }
+        dungeonSession = null;
+        // Sessions hold a portal ticket, so only players inside the dungeon world get one
+        if (playerEntity.getWorld().getRegistryKey() == DimensionInit.DUNGEON_WORLD && ((ServerPlayerAccess) playerEntity).getOldServerWorld() != null) {
+            BlockEntity blockEntity = ((ServerPlayerAccess) playerEntity).getOldServerWorld().getBlockEntity(((ServerPlayerAccess) playerEntity).getDungeonPortalBlockPos());
+            if (blockEntity instanceof DungeonPortalEntity) {
+                DungeonPortalEntity dungeonPortalEntity = (DungeonPortalEntity) blockEntity;
+                dungeonSession = new DungeonSession(dungeonPortalEntity, dungeonPortalEntity.getInstance(((ServerPlayerAccess) playerEntity).getDungeonInstanceIndex()));
             }
-            possibleLootItemStackMap.put(entry.getKey(), itemStacks);
         }
+        ((ServerPlayerAccess) playerEntity).setDungeonSession(dungeonSession);
+        return dungeonSession;
+    }
+
+    public static List<ItemStack> getRequiredItemStackList(Dungeon dungeon) {
+        return DungeonLootPreview.getRequiredItemStacks(dungeon);
+    }
 
-        return possibleLootItemStackMap;
+    public static Map<String, List<ItemStack>> getPossibleLootItemStackMap(Dungeon dungeon, MinecraftServer server) {
+        return DungeonLootPreview.getPossibleLoot(dungeon, server);
     }
 
     public static void teleportDungeon(ServerPlayerEntity player, BlockPos dungeonPortalPos, @Nullable UUID requiredMinGroupUuid) {
@@ -131,51 +110,54 @@ public class DungeonHelper {
                     return;
                 }
                 if (dungeonPortalEntity.getDungeon() != null) {
-                    if ((dungeonPortalEntity.getDungeonPlayerCount() + dungeonPortalEntity.getDeadDungeonPlayerUUIDs().size()) < dungeonPortalEntity.getMaxGroupSize()) {
-
-                        if (dungeonPortalEntity.isOnCooldown((int) dungeonWorld.getTime())) {
-                            player.sendMessage(Text.translatable("text.dungeonz.dungeon_cooldown"), false);
+                    for (DungeonInstance instance : dungeonPortalEntity.getInstances()) {
+                        if (instance.getGenerationTask() != null && instance.getGenerationTask().isWaiting(player.getUuid())) {
                             return;
                         }
-                        if (dungeonPortalEntity.getDungeonPlayerCount() > 0 && dungeonPortalEntity.getPrivateGroup()) {
-                            if (DungeonzMain.isPartyAddonLoaded) {
-                                GroupManager groupManager = ((GroupManagerAccess) player).getGroupManager();
-                                if (groupManager.getGroupPlayerIdList().isEmpty() || !groupManager.getGroupPlayerIdList().contains(dungeonPortalEntity.getDungeonPlayerUuids().get(0))) {
-                                    player.sendMessage(Text.translatable("text.dungeonz.dungeon_private"), false);
-                                    return;
-                                }
-                            } else {
-                                player.sendMessage(Text.translatable("text.dungeonz.dungeon_private"), false);
-                                return;
-                            }
+                    }
+                    DungeonInstance viewInstance = dungeonPortalEntity.getViewInstance(player);
+                    String joinError = getJoinError(player, dungeonPortalEntity, viewInstance, (int) dungeonWorld.getTime());
+                    if (joinError == null) {
+                        if (!player.isCreative() && !InventoryHelper.hasRequiredItemStacks(player.getInventory(), DungeonHelper.getRequiredItemStackList(dungeonPortalEntity.getDungeon()))) {
+                            player.sendMessage(Text.translatable("text.dungeonz.missing"), false);
+                            return;
                         }
+                        boolean minGroup = viewInstance.getDungeonPlayerCount() <= 0 && requiredMinGroupUuid != null && dungeonPortalEntity.getMinGroupSize() > 1;
+                        if (minGroup) {
+                            dungeonPortalEntity.addWaitingUuid(requiredMinGroupUuid);
+                        }
+                        if (minGroup && dungeonPortalEntity.getMinGroupSize() > dungeonPortalEntity.getWaitingUuids().size()) {
+                            player.sendMessage(Text.translatable("text.dungeonz.dungeon_min_group_size", (dungeonPortalEntity.getMinGroupSize() - dungeonPortalEntity.getWaitingUuids().size())), false);
+                            return;
+                        }
+                        // Allocated only now, so viewing or failing a check never takes up an instance slot
+                        DungeonInstance instance = dungeonPortalEntity.getJoinInstance(viewInstance);
+                        if (instance == null) {
+                            player.sendMessage(Text.translatable("text.dungeonz.dungeon_full"), false);
+                            return;
+                        }
+                        // Charged only once the instance is secured, waiting players pay when the group enters
                         if (!player.isCreative()) {
-                            if (InventoryHelper.hasRequiredItemStacks(player.getInventory(), DungeonHelper.getRequiredItemStackList(dungeonPortalEntity.getDungeon()))) {
-                                InventoryHelper.decrementRequiredItemStacks(player.getInventory(), DungeonHelper.getRequiredItemStackList(dungeonPortalEntity.getDungeon()));
-                            } else {
-                                player.sendMessage(Text.translatable("text.dungeonz.missing"), false);
-                                return;
-                            }
+                            InventoryHelper.decrementRequiredItemStacks(player.getInventory(), DungeonHelper.getRequiredItemStackList(dungeonPortalEntity.getDungeon()));
                         }
-                        if (dungeonPortalEntity.getDungeonPlayerCount() <= 0 && requiredMinGroupUuid != null && dungeonPortalEntity.getMinGroupSize() > 1) {
-                            dungeonPortalEntity.addWaitingUuid(requiredMinGroupUuid);
-                            if (dungeonPortalEntity.getMinGroupSize() > dungeonPortalEntity.getWaitingUuids().size()) {
-                                player.sendMessage(Text.translatable("text.dungeonz.dungeon_min_group_size", (dungeonPortalEntity.getMinGroupSize() - dungeonPortalEntity.getWaitingUuids().size())),
-                                        false);
-                                return;
-                            } else {
-                                for (int i = 0; i < dungeonPortalEntity.getWaitingUuids().size(); i++) {
-                                    if (player.getServerWorld().getPlayerByUuid(dungeonPortalEntity.getWaitingUuids().get(i)) != null) {
-                                        teleportPlayer((ServerPlayerEntity) player.getServerWorld().getPlayerByUuid(dungeonPortalEntity.getWaitingUuids().get(i)), dungeonWorld, dungeonPortalEntity,
-                                                dungeonPortalPos);
+                        if (minGroup) {
+                            for (int i = 0; i < dungeonPortalEntity.getWaitingUuids().size(); i++) {
+                                if (player.getServerWorld().getPlayerByUuid(dungeonPortalEntity.getWaitingUuids().get(i)) instanceof ServerPlayerEntity waitingPlayer && waitingPlayer != player) {
+                                    if (!waitingPlayer.isCreative()) {
+                                        if (!InventoryHelper.hasRequiredItemStacks(waitingPlayer.getInventory(), DungeonHelper.getRequiredItemStackList(dungeonPortalEntity.getDungeon()))) {
+                                            waitingPlayer.sendMessage(Text.translatable("text.dungeonz.missing"), false);
+                                            continue;
+                                        }
+                                        InventoryHelper.decrementRequiredItemStacks(waitingPlayer.getInventory(), DungeonHelper.getRequiredItemStackList(dungeonPortalEntity.getDungeon()));
                                     }
+                                    teleportPlayer(waitingPlayer, dungeonWorld, dungeonPortalEntity, instance);
                                 }
-                                dungeonPortalEntity.getWaitingUuids().clear();
                             }
+                            dungeonPortalEntity.getWaitingUuids().clear();
                         }
-                        teleportPlayer(player, dungeonWorld, dungeonPortalEntity, dungeonPortalPos);
+                        teleportPlayer(player, dungeonWorld, dungeonPortalEntity, instance);
                     } else {
-                        player.sendMessage(Text.translatable("text.dungeonz.dungeon_full"), false);
+                        player.sendMessage(Text.translatable(joinError), false);
                     }
                 } else {
                     player.sendMessage(Text.translatable("text.dungeonz.dungeon_missing"), false);
@@ -184,11 +166,40 @@ public class DungeonHelper {
         }
     }
 
-    private static void teleportPlayer(ServerPlayerEntity serverPlayerEntity, ServerWorld dungeonWorld, DungeonPortalEntity dungeonPortalEntity, BlockPos dungeonPortalPos) {
-        ServerPlayerEntity playerEntity = FabricDimensions.teleport(serverPlayerEntity, dungeonWorld, DungeonPlacementHandler.enter(serverPlayerEntity, dungeonWorld,
-                serverPlayerEntity.getServerWorld(), dungeonPortalEntity, dungeonPortalPos, dungeonPortalEntity.getDifficulty(), dungeonPortalEntity.getDisableEffects()));
+    // Returns the translation key of the reason the player can't join the instance or null
+    @Nullable
+    public static String getJoinError(ServerPlayerEntity player, DungeonPortalEntity dungeonPortalEntity, DungeonInstance instance, int time) {
+        if ((instance.getDungeonPlayerCount() + instance.getDeadDungeonPlayerUUIDs().size()) >= dungeonPortalEntity.getMaxGroupSize()) {
+            return "text.dungeonz.dungeon_full";
+        }
+        if (instance.isOnCooldown(time)) {
+            return "text.dungeonz.dungeon_cooldown";
+        }
+        if (instance.getDungeonPlayerCount() > 0 && instance.getPrivateGroup()) {
+            if (!DungeonzMain.isPartyAddonLoaded) {
+                return "text.dungeonz.dungeon_private";
+            }
+            GroupManager groupManager = ((GroupManagerAccess) player).getGroupManager();
+            if (groupManager.getGroupPlayerIdList().isEmpty() || !groupManager.getGroupPlayerIdList().contains(instance.getDungeonPlayerUuids().get(0))) {
+                return "text.dungeonz.dungeon_private";
+            }
+        }
+        return null;
+    }
+
+    public static void teleportPlayer(ServerPlayerEntity serverPlayerEntity, ServerWorld dungeonWorld, DungeonPortalEntity dungeonPortalEntity, DungeonInstance instance) {
+        // The first player of a run decides the settings of the instance
+        if (instance.getDungeonPlayerCount() == 0 && !instance.isReserved()) {
+            instance.applySettings(dungeonPortalEntity.getDifficulty(), dungeonPortalEntity.getDisableEffects(), dungeonPortalEntity.getPrivateGroup());
+        }
+        if (!instance.isDungeonStructureGenerated()) {
+            DungeonPlacementHandler.prepareDungeon(serverPlayerEntity, dungeonWorld, dungeonPortalEntity, instance);
+            return;
+        }
+        ServerPlayerEntity playerEntity = FabricDimensions.teleport(serverPlayerEntity, dungeonWorld,
+                DungeonPlacementHandler.enter(serverPlayerEntity, dungeonWorld, serverPlayerEntity.getServerWorld(), dungeonPortalEntity, instance));
 
-        DungeonServerPacket.writeS2CDungeonInfoPacket(playerEntity, dungeonPortalEntity.getDungeon().getBreakableBlockIdList(), dungeonPortalEntity.getDungeon().getplaceableBlockIdList(),
+        DungeonServerPacket.writeS2CDungeonInfoPacket(playerEntity, dungeonPortalEntity.getDungeon().getBreakableBlocks(), dungeonPortalEntity.getDungeon().getPlaceableBlocks(),
                 dungeonPortalEntity.getDungeon().isElytraAllowed());
     }
 
@@ -0,0 +1,137 @@
+package net.dungeonz.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.Map.Entry;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtHelper;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.util.math.BlockPos;
+
+public class DungeonNbtHelper {
+
+    public static void putBlockPosList(NbtCompound nbt, String key, List<BlockPos> posList) {
+        long[] positions = new long[posList.size()];
+        for (int i = 0; i < posList.size(); i++) {
+            positions[i] = posList.get(i).asLong();
+        }
+        nbt.putLongArray(key, positions);
+    }
+
+    public static List<BlockPos> getBlockPosList(NbtCompound nbt, String key) {
+        long[] positions = nbt.getLongArray(key);
+        List<BlockPos> posList = new ArrayList<BlockPos>(positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            posList.add(BlockPos.fromLong(positions[i]));
+        }
+        return posList;
+    }
+
+    public static void putBlockPosIdMap(NbtCompound nbt, String posKey, String idKey, Map<BlockPos, Integer> posIdMap) {
+        long[] positions = new long[posIdMap.size()];
+        int[] ids = new int[posIdMap.size()];
+        int count = 0;
+        Iterator<Entry<BlockPos, Integer>> iterator = posIdMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<BlockPos, Integer> entry = iterator.next();
+            positions[count] = entry.getKey().asLong();
+            ids[count] = entry.getValue();
+            count++;
+        }
+        nbt.putLongArray(posKey, positions);
+        nbt.putIntArray(idKey, ids);
+    }
+
+    public static HashMap<BlockPos, Integer> getBlockPosIdMap(NbtCompound nbt, String posKey, String idKey) {
+        long[] positions = nbt.getLongArray(posKey);
+        int[] ids = nbt.getIntArray(idKey);
+        HashMap<BlockPos, Integer> posIdMap = new HashMap<BlockPos, Integer>();
+        for (int i = 0; i < Math.min(positions.length, ids.length); i++) {
+            posIdMap.put(BlockPos.fromLong(positions[i]), ids[i]);
+        }
+        return posIdMap;
+    }
+
+    // Stores the ids, the list sizes and all positions back to back
+    public static void putIdBlockPosListMap(NbtCompound nbt, String key, Map<Integer, ArrayList<BlockPos>> idPosListMap) {
+        int[] ids = new int[idPosListMap.size()];
+        int[] sizes = new int[idPosListMap.size()];
+        int positionCount = 0;
+        for (ArrayList<BlockPos> posList : idPosListMap.values()) {
+            positionCount += posList.size();
+        }
+        long[] positions = new long[positionCount];
+        int count = 0;
+        int positionIndex = 0;
+        Iterator<Entry<Integer, ArrayList<BlockPos>>> iterator = idPosListMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<Integer, ArrayList<BlockPos>> entry = iterator.next();
+            ids[count] = entry.getKey();
+            sizes[count] = entry.getValue().size();
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                positions[positionIndex++] = entry.getValue().get(i).asLong();
+            }
+            count++;
+        }
+        nbt.putIntArray(key + "Ids", ids);
+        nbt.putIntArray(key + "Sizes", sizes);
+        nbt.putLongArray(key + "Positions", positions);
+    }
+
+    public static HashMap<Integer, ArrayList<BlockPos>> getIdBlockPosListMap(NbtCompound nbt, String key) {
+        int[] ids = nbt.getIntArray(key + "Ids");
+        int[] sizes = nbt.getIntArray(key + "Sizes");
+        long[] positions = nbt.getLongArray(key + "Positions");
+        HashMap<Integer, ArrayList<BlockPos>> idPosListMap = new HashMap<Integer, ArrayList<BlockPos>>();
+        int positionIndex = 0;
+        for (int i = 0; i < Math.min(ids.length, sizes.length); i++) {
+            ArrayList<BlockPos> posList = new ArrayList<BlockPos>(sizes[i]);
+            for (int u = 0; u < sizes[i] && positionIndex < positions.length; u++) {
+                posList.add(BlockPos.fromLong(positions[positionIndex++]));
+            }
+            idPosListMap.put(ids[i], posList);
+        }
+        return idPosListMap;
+    }
+
+    public static void putIntList(NbtCompound nbt, String key, List<Integer> intList) {
+        int[] ints = new int[intList.size()];
+        for (int i = 0; i < intList.size(); i++) {
+            ints[i] = intList.get(i);
+        }
+        nbt.putIntArray(key, ints);
+    }
+
+    public static List<Integer> getIntList(NbtCompound nbt, String key) {
+        int[] ints = nbt.getIntArray(key);
+        List<Integer> intList = new ArrayList<Integer>(ints.length);
+        for (int i = 0; i < ints.length; i++) {
+            intList.add(ints[i]);
+        }
+        return intList;
+    }
+
+    public static void putUuidList(NbtCompound nbt, String key, List<UUID> uuidList) {
+        NbtList nbtList = new NbtList();
+        for (int i = 0; i < uuidList.size(); i++) {
+            nbtList.add(NbtHelper.fromUuid(uuidList.get(i)));
+        }
+        nbt.put(key, nbtList);
+    }
+
+    public static List<UUID> getUuidList(NbtCompound nbt, String key) {
+        NbtList nbtList = nbt.getList(key, NbtElement.INT_ARRAY_TYPE);
+        List<UUID> uuidList = new ArrayList<UUID>(nbtList.size());
+        for (int i = 0; i < nbtList.size(); i++) {
+            uuidList.add(NbtHelper.toUuid(nbtList.get(i)));
+        }
+        return uuidList;
+    }
+
+}